@@ -0,0 +1,68 @@
+package com.example.phonebook.bench;
+
+import com.example.phonebook.lock.Broadcaster;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * End-to-end Broadcaster fan-out: one broadcast until every registered listener has received it.
+ * The listeners only count, so this measures the broadcaster, not Vaadin's UI.access().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BroadcasterBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int listeners;
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final List<Consumer<String>> registered = new ArrayList<>();
+    private long expected;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (int i = 0; i < listeners; i++) {
+            Consumer<String> listener = message -> delivered.incrementAndGet();
+            registered.add(listener);
+            Broadcaster.register(listener);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        registered.forEach(Broadcaster::unregister);
+        registered.clear();
+    }
+
+    @Benchmark
+    public void broadcastFanOut(Blackhole bh) {
+        expected += listeners;
+        Broadcaster.broadcast("DATA_UPDATED");
+        while (delivered.get() < expected) {
+            Thread.onSpinWait();
+        }
+        bh.consume(expected);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.phonebook.bench;
+
+import com.example.phonebook.PersonDataProvider;
+import com.example.phonebook.model.Person;
+import com.vaadin.flow.component.crud.CrudFilter;
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.data.provider.SortDirection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grid page fetch (filter + sort + page) and row count through PersonDataProvider in DB mode,
+ * i.e. served from the DataService cache and indexes.
+ *
+ * With window=false every fetch runs filter + sort + page. With window=true the same offset is
+ * served from the session's PageWindow after the first call, so that case measures a window hit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DataProviderBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"10000", "100000", "1000000"})
+    public int contacts;
+
+    /**
+     * none: default order; country: filter on a dictionary column; name: free-text filter;
+     * city-desc: indexed sort; phone-sort: sort without index (full sort).
+     */
+    @Param({"none", "country", "name", "city-desc", "phone-sort"})
+    public String scenario;
+
+    @Param({"false", "true"})
+    public boolean window;
+
+    private PersonDataProvider provider;
+    private CrudFilter filter;
+    private int middleOffset;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        provider = new PersonDataProvider(SyntheticContacts.dataService(contacts), true, window);
+        filter = new CrudFilter();
+        switch (scenario) {
+            case "country" -> filter.getConstraints().put("country", "pak");
+            case "name" -> filter.getConstraints().put("name", "khan");
+            case "city-desc" -> filter.getSortOrders().put("city", SortDirection.DESCENDING);
+            case "phone-sort" -> filter.getSortOrders().put("phone", SortDirection.ASCENDING);
+            default -> { }
+        }
+        int size = provider.size(new Query<>(filter));
+        middleOffset = Math.max(0, size / 2 - PAGE_SIZE);
+    }
+
+    @Benchmark
+    public void firstPage(Blackhole bh) {
+        fetch(0, bh);
+    }
+
+    @Benchmark
+    public void middlePage(Blackhole bh) {
+        fetch(middleOffset, bh);
+    }
+
+    @Benchmark
+    public int size() {
+        return provider.size(new Query<>(filter));
+    }
+
+    private void fetch(int offset, Blackhole bh) {
+        Query<Person, CrudFilter> query = new Query<>(offset, PAGE_SIZE, List.of(), null, filter);
+        provider.fetch(query).forEach(bh::consume);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.phonebook.bench;
+
+import com.example.phonebook.model.Person;
+import com.example.phonebook.repository.DataService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataService cache lookups and saves, alone and with readers and writers competing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataServiceBenchmark {
+
+    @Param({"100000"})
+    public int contacts;
+
+    DataService dataService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataService = SyntheticContacts.dataService(contacts);
+    }
+
+    // Per-thread random source, so threads do not share a generator
+    @State(Scope.Thread)
+    public static class ThreadState {
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+    }
+
+    private Person lookup(ThreadState state) {
+        int index = state.random.nextInt(contacts);
+        return dataService.getFromCache(String.valueOf(3_000_000_000L + index));
+    }
+
+    // updates an existing contact (ids are 1..contacts in the in-memory repository)
+    private void save(ThreadState state) {
+        int id = 1 + state.random.nextInt(contacts);
+        Person p = dataService.findById(id).orElseThrow();
+        p.setCity(state.random.nextBoolean() ? "Lahore" : "Berlin");
+        dataService.save(p);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Person getFromCache_1thread(ThreadState state) {
+        return lookup(state);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Person getFromCache_8threads(ThreadState state) {
+        return lookup(state);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void save_1thread(ThreadState state) {
+        save(state);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void save_4threads(ThreadState state) {
+        save(state);
+    }
+
+    // 6 readers and 2 writers on the same DataService
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public Person mixedRead(ThreadState state) {
+        return lookup(state);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public void mixedSave(ThreadState state) {
+        save(state);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.phonebook.bench;
+
+import com.example.phonebook.lock.LockRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LockRegistry tryAcquire + release (an editor opening and closing a record) at 1, 4 and 16 threads.
+ * A small record range makes sessions fight over the same records; a large one mostly does not.
+ * No Broadcaster listeners are registered, so this measures the registry itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LockRegistryBenchmark {
+
+    @Param({"16", "100000"})
+    public int records;
+
+    @State(Scope.Thread)
+    public static class Session {
+        final String sessionId = UUID.randomUUID().toString();
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new SplittableRandom(sessionId.hashCode());
+        }
+    }
+
+    private boolean acquireRelease(Session session) {
+        int recordId = session.random.nextInt(records);
+        boolean acquired = LockRegistry.tryAcquire(recordId, session.sessionId, "bench");
+        if (acquired) {
+            LockRegistry.release(recordId, session.sessionId);
+        }
+        return acquired;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean acquireRelease_1thread(Session session) {
+        return acquireRelease(session);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean acquireRelease_4threads(Session session) {
+        return acquireRelease(session);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean acquireRelease_16threads(Session session) {
+        return acquireRelease(session);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.phonebook.bench;
+
+import com.example.phonebook.model.Person;
+import com.example.phonebook.repository.DataService;
+import com.example.phonebook.repository.PersonRepositoryInMemory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic contacts: the same seed and count always give the same data,
+ * so results are comparable across commits.
+ *
+ * Countries and cities repeat heavily (like real data), phones are unique.
+ */
+public final class SyntheticContacts {
+
+    public static final long DEFAULT_SEED = 20240601L;
+
+    private static final String[] FIRST_NAMES = {
+            "Ali", "Ayesha", "Bilal", "Fatima", "Hassan", "Hina", "Imran", "Sana", "Usman", "Zara",
+            "Anna", "Ben", "Clara", "David", "Emma", "Felix", "Grace", "Henry", "Ivy", "Jonas",
+            "Kenji", "Lena", "Mateo", "Nora", "Omar", "Priya", "Quinn", "Rosa", "Sven", "Tariq"
+    };
+    private static final String[] LAST_NAMES = {
+            "Khan", "Ahmed", "Malik", "Hussain", "Qureshi", "Sheikh", "Butt", "Raza", "Iqbal", "Chaudhry",
+            "Smith", "Müller", "Garcia", "Rossi", "Nowak", "Silva", "Tanaka", "Kim", "Novak", "Jensen"
+    };
+    private static final String[][] COUNTRIES_AND_CITIES = {
+            {"Pakistan", "Lahore", "Karachi", "Islamabad", "Faisalabad", "Multan", "Peshawar"},
+            {"Germany", "Berlin", "Munich", "Hamburg", "Cologne", "Frankfurt"},
+            {"United States", "New York", "Austin", "Chicago", "Seattle", "Boston", "Denver"},
+            {"United Kingdom", "London", "Manchester", "Leeds", "Glasgow"},
+            {"Japan", "Tokyo", "Osaka", "Kyoto", "Sapporo"},
+            {"Brazil", "São Paulo", "Rio de Janeiro", "Curitiba"},
+            {"India", "Mumbai", "Delhi", "Bengaluru", "Chennai", "Pune"},
+            {"Italy", "Rome", "Milan", "Turin", "Naples"},
+            {"Poland", "Warsaw", "Kraków", "Gdańsk"},
+            {"Norway", "Oslo", "Bergen"}
+    };
+    private static final String[] STREETS = {
+            "Main Street", "Mall Road", "Station Road", "Park Avenue", "Canal Road",
+            "Hauptstraße", "High Street", "Church Lane", "Garden Town", "Lake View"
+    };
+
+    private SyntheticContacts() {}
+
+    /**
+     * Contacts without ids (as they would come from the editor), index 0..count-1.
+     */
+    public static List<Person> generate(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Person> contacts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            contacts.add(contact(i, random));
+        }
+        return contacts;
+    }
+
+    public static Person contact(int index, SplittableRandom random) {
+        String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        String[] country = COUNTRIES_AND_CITIES[random.nextInt(COUNTRIES_AND_CITIES.length)];
+        String city = country[1 + random.nextInt(country.length - 1)];
+        String street = (1 + random.nextInt(300)) + " " + STREETS[random.nextInt(STREETS.length)];
+        String phone = String.valueOf(3_000_000_000L + index); // unique, digits only
+        String email = (first + "." + last + index).toLowerCase() + "@example.com";
+        return new Person(null, first + " " + last, phone, email, country[0], city, street);
+    }
+
+    /**
+     * A DataService over a fresh in-memory repository (no MySQL) holding count synthetic contacts.
+     */
+    public static DataService dataService(int count) {
+        PersonRepositoryInMemory repository = new PersonRepositoryInMemory();
+        for (Person p : generate(count, DEFAULT_SEED)) {
+            repository.add(p);
+        }
+        return new DataService(repository);
+    }
+}
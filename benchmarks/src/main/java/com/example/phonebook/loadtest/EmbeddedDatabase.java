@@ -0,0 +1,74 @@
+package com.example.phonebook.loadtest;
+
+import com.example.phonebook.bench.SyntheticContacts;
+import com.example.phonebook.db.Database;
+import com.example.phonebook.model.Person;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * H2 in-memory database in MySQL mode with the contacts table from the README,
+ * so the load test exercises PersonRepositoryJDBC (one connection per call, as in production)
+ * without a MySQL server.
+ */
+final class EmbeddedDatabase {
+
+    static final String URL = "jdbc:h2:mem:phonebook;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private static final String CREATE_TABLE = "CREATE TABLE contacts ("
+            + " id INT NOT NULL AUTO_INCREMENT PRIMARY KEY,"
+            + " name VARCHAR(100) NOT NULL,"
+            + " phone VARCHAR(20) NOT NULL UNIQUE,"
+            + " email VARCHAR(100) DEFAULT NULL,"
+            + " country VARCHAR(100) DEFAULT NULL,"
+            + " city VARCHAR(100) DEFAULT NULL,"
+            + " street VARCHAR(255) DEFAULT NULL,"
+            + " last_updated TIMESTAMP NULL DEFAULT CURRENT_TIMESTAMP)";
+
+    private EmbeddedDatabase() {}
+
+    /**
+     * Points Database at the embedded database. Must run before Database is first used,
+     * because it reads the connection settings once.
+     */
+    static void configure() {
+        System.setProperty("phonebook.db.url", System.getProperty("phonebook.db.url", URL));
+        System.setProperty("phonebook.db.user", System.getProperty("phonebook.db.user", "sa"));
+        System.setProperty("phonebook.db.password", System.getProperty("phonebook.db.password", ""));
+    }
+
+    /**
+     * (Re)creates the contacts table holding count synthetic contacts.
+     */
+    static void seed(int count) throws SQLException {
+        try (Connection conn = Database.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP TABLE IF EXISTS contacts");
+                stmt.execute(CREATE_TABLE);
+            }
+            conn.setAutoCommit(false);
+            String sql = "INSERT INTO contacts (name, phone, email, country, city, street) VALUES (?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int pending = 0;
+                for (Person p : SyntheticContacts.generate(count, SyntheticContacts.DEFAULT_SEED)) {
+                    stmt.setString(1, p.getName());
+                    stmt.setString(2, p.getPhone());
+                    stmt.setString(3, p.getEmail());
+                    stmt.setString(4, p.getCountry());
+                    stmt.setString(5, p.getCity());
+                    stmt.setString(6, p.getStreet());
+                    stmt.addBatch();
+                    if (++pending == 1000) {
+                        stmt.executeBatch();
+                        pending = 0;
+                    }
+                }
+                stmt.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.phonebook.loadtest;
+
+import com.example.phonebook.metrics.Counter;
+import com.example.phonebook.metrics.LatencyHistogram;
+import com.example.phonebook.metrics.Metrics;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What the virtual sessions measure, shared by all sessions of a run.
+ *
+ * The latencies are ordinary Metrics histograms ("loadtest_*"), so they sit next to the
+ * application's own ones (grid_fetch, repository_update, broadcast_delivery, ...) and are
+ * all reset together at the start of each measured step.
+ */
+final class LoadStats {
+
+    // one grid page while scrolling (size + page when the filter changed)
+    final LatencyHistogram scroll = Metrics.histogram("loadtest_scroll");
+    // one keystroke in a filter field: the grid recounts and fetches the first page
+    final LatencyHistogram filter = Metrics.histogram("loadtest_filter");
+    // double click on a row: lock attempt
+    final LatencyHistogram lock = Metrics.histogram("loadtest_lock");
+    // editor save (DataService.save + lock release)
+    final LatencyHistogram save = Metrics.histogram("loadtest_save");
+    // DATA_UPDATED handled by a session: grid recount and page reload
+    final LatencyHistogram refresh = Metrics.histogram("loadtest_push_refresh");
+
+    // application histograms shown in the report
+    final LatencyHistogram broadcastDelivery = Metrics.histogram("broadcast_delivery");
+    final LatencyHistogram repositoryUpdate = Metrics.histogram("repository_update");
+
+    final LongAdder operations = new LongAdder();
+    final LongAdder lockAttempts = new LongAdder();
+    final LongAdder lockConflicts = new LongAdder();
+    final LongAdder saves = new LongAdder();
+    final LongAdder cancels = new LongAdder();
+    final LongAdder pushes = new LongAdder();
+    final LongAdder errors = new LongAdder();
+
+    private final Counter repositoryErrors = Metrics.counter("repository_errors");
+    private long repositoryErrorsAtReset;
+
+    void reset() {
+        List.of(scroll, filter, lock, save, refresh, broadcastDelivery, repositoryUpdate)
+                .forEach(LatencyHistogram::reset);
+        List.of(operations, lockAttempts, lockConflicts, saves, cancels, pushes, errors)
+                .forEach(LongAdder::reset);
+        repositoryErrorsAtReset = repositoryErrors.get();
+    }
+
+    long repositoryErrors() {
+        return repositoryErrors.get() - repositoryErrorsAtReset;
+    }
+
+    double conflictRate() {
+        long attempts = lockAttempts.sum();
+        return attempts == 0 ? 0 : (double) lockConflicts.sum() / attempts;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.phonebook.loadtest;
+
+import com.example.phonebook.bench.SyntheticContacts;
+import com.example.phonebook.metrics.LatencyHistogram;
+import com.example.phonebook.repository.DataService;
+import com.example.phonebook.repository.PersonRepositoryJDBC;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless load test: N virtual MainView sessions (see VirtualSession) against one DataService,
+ * stepping N up to find where page, save or push latency stops meeting the target.
+ *
+ *   java -cp benchmarks/target/benchmarks.jar com.example.phonebook.loadtest.LoadTest \
+ *        --sessions=1,10,50,100 --duration=30 --db=h2
+ *
+ * Options (all optional):
+ *   --db=h2|memory     PersonRepositoryJDBC on embedded H2 (default) or the in-memory repository
+ *   --contacts=10000   phonebook size
+ *   --sessions=1,5,10,25,50,100   concurrency steps
+ *   --warmup=5 --duration=20      seconds per step (warm-up is not measured)
+ *   --think=200        mean think time between actions, ms
+ *   --slo=250          p99 target in ms for page, save and push delivery
+ *
+ * One line per step: throughput, p50/p99 per action, lock conflict rate and DB write time
+ * (repository_update, empty with --db=memory).
+ */
+public final class LoadTest {
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String db = options.getOrDefault("db", "h2");
+        int contacts = Integer.parseInt(options.getOrDefault("contacts", "10000"));
+        int[] steps = Arrays.stream(options.getOrDefault("sessions", "1,5,10,25,50,100").split(","))
+                .map(String::trim).mapToInt(Integer::parseInt).toArray();
+        long warmup = Long.parseLong(options.getOrDefault("warmup", "5"));
+        long duration = Long.parseLong(options.getOrDefault("duration", "20"));
+        long think = Long.parseLong(options.getOrDefault("think", "200"));
+        double slo = Double.parseDouble(options.getOrDefault("slo", "250"));
+
+        DataService dataService;
+        if ("memory".equals(db)) {
+            dataService = SyntheticContacts.dataService(contacts);
+        } else if ("h2".equals(db)) {
+            EmbeddedDatabase.configure();
+            EmbeddedDatabase.seed(contacts);
+            dataService = new DataService(new PersonRepositoryJDBC());
+        } else {
+            throw new IllegalArgumentException("--db must be h2 or memory, not " + db);
+        }
+        System.out.printf(Locale.ROOT, "%d contacts, db=%s, think=%dms, %ds per step, p99 target %.0fms%n%n",
+                dataService.count(), db, think, duration, slo);
+
+        LoadStats stats = new LoadStats();
+        // Vaadin runs ui.access() tasks on its own threads; a pool per core is a fair stand-in
+        ExecutorService pushExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread t = new Thread(r, "push");
+            t.setDaemon(true);
+            return t;
+        });
+
+        System.out.println(header());
+        int withinSlo = 0;
+        for (int sessions : steps) {
+            boolean ok = runStep(dataService, stats, pushExecutor, sessions, warmup, duration, think, slo);
+            if (ok) {
+                withinSlo = sessions;
+            }
+        }
+        pushExecutor.shutdownNow();
+        System.out.println();
+        System.out.println(withinSlo > 0
+                ? "Highest step within the p99 target: " + withinSlo + " sessions"
+                : "No step met the p99 target");
+    }
+
+    private static boolean runStep(DataService dataService, LoadStats stats, ExecutorService pushExecutor,
+                                   int sessions, long warmup, long duration, long think, double slo)
+            throws InterruptedException {
+        List<VirtualSession> virtualSessions = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            VirtualSession session = new VirtualSession(dataService, stats, pushExecutor,
+                    SyntheticContacts.DEFAULT_SEED + 31L * sessions + i, think);
+            Thread thread = new Thread(session, "session-" + i);
+            thread.setDaemon(true);
+            virtualSessions.add(session);
+            threads.add(thread);
+        }
+        threads.forEach(Thread::start);
+
+        TimeUnit.SECONDS.sleep(warmup);
+        stats.reset();
+        long start = System.nanoTime();
+        TimeUnit.SECONDS.sleep(duration);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        String row = row(sessions, seconds, stats);
+        boolean ok = stats.errors.sum() + stats.repositoryErrors() == 0
+                && p99Millis(stats.scroll) <= slo && p99Millis(stats.filter) <= slo
+                && p99Millis(stats.save) <= slo && p99Millis(stats.broadcastDelivery) <= slo;
+
+        virtualSessions.forEach(VirtualSession::stop);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        System.out.println(row + (ok ? "" : "  <- over target"));
+        return ok;
+    }
+
+    private static String header() {
+        return String.format(Locale.ROOT, "%8s %9s | %-13s | %-13s | %-13s | %-13s | %-13s | %9s | %-13s | %6s",
+                "sessions", "ops/s", "scroll ms", "filter ms", "save ms", "refresh ms", "push ms",
+                "conflicts", "db write ms", "errors")
+                + String.format(Locale.ROOT, "%n%8s %9s | %-13s | %-13s | %-13s | %-13s | %-13s | %9s | %-13s | %6s",
+                "", "", "p50/p99", "p50/p99", "p50/p99", "p50/p99", "p50/p99", "", "p50/p99", "");
+    }
+
+    private static String row(int sessions, double seconds, LoadStats stats) {
+        return String.format(Locale.ROOT, "%8d %9.1f | %-13s | %-13s | %-13s | %-13s | %-13s | %8.1f%% | %-13s | %6d",
+                sessions, stats.operations.sum() / seconds,
+                latency(stats.scroll), latency(stats.filter), latency(stats.save), latency(stats.refresh),
+                latency(stats.broadcastDelivery), 100 * stats.conflictRate(), latency(stats.repositoryUpdate),
+                stats.errors.sum() + stats.repositoryErrors());
+    }
+
+    private static String latency(LatencyHistogram histogram) {
+        if (histogram.count() == 0) {
+            return "-";
+        }
+        return String.format(Locale.ROOT, "%.1f/%.1f", histogram.percentile(0.5) / 1e6, p99Millis(histogram));
+    }
+
+    private static double p99Millis(LatencyHistogram histogram) {
+        return histogram.count() == 0 ? 0 : histogram.percentile(0.99) / 1e6;
+    }
+
+    // --name=value arguments
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+}
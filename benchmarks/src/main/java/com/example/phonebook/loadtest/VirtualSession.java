@@ -0,0 +1,210 @@
+package com.example.phonebook.loadtest;
+
+import com.example.phonebook.PersonDataProvider;
+import com.example.phonebook.lock.Broadcaster;
+import com.example.phonebook.lock.LockRegistry;
+import com.example.phonebook.model.Person;
+import com.example.phonebook.repository.DataService;
+import com.vaadin.flow.component.crud.CrudFilter;
+import com.vaadin.flow.data.provider.Query;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * One browser-less MainView: its own PersonDataProvider, session id and Broadcaster listener,
+ * driven by a script of scrolling, filter typing, double click (lock) and save or cancel,
+ * with random think time between actions.
+ *
+ * As in Vaadin, everything the session does runs under its session lock (here the object
+ * monitor); broadcasts are handed to a shared push executor, like ui.access().
+ */
+final class VirtualSession implements Runnable {
+
+    private static final int PAGE_SIZE = 50;
+    private static final String[] FILTER_WORDS = {"khan", "ali", "smith", "müller", "an", "ra"};
+    private static final String[] CITIES = {"Lahore", "Berlin", "Austin", "Osaka", "Pune"};
+
+    private final DataService dataService;
+    private final PersonDataProvider provider;
+    private final LoadStats stats;
+    private final Executor pushExecutor;
+    private final SplittableRandom random;
+    private final long meanThinkNanos;
+    private final String sessionId = UUID.randomUUID().toString();
+    private final Consumer<String> broadcasterListener = this::onBroadcast;
+
+    private volatile boolean running = true;
+    private CrudFilter filter = new CrudFilter();
+    private int offset;
+    private int size = -1; // row count of the current filter, -1 until the grid asked for it
+    private Person editing; // record locked by this session, saved or cancelled on the next step
+
+    VirtualSession(DataService dataService, LoadStats stats, Executor pushExecutor, long seed, long meanThinkMillis) {
+        this.dataService = dataService;
+        this.provider = new PersonDataProvider(dataService, true);
+        this.stats = stats;
+        this.pushExecutor = pushExecutor;
+        this.random = new SplittableRandom(seed);
+        this.meanThinkNanos = TimeUnit.MILLISECONDS.toNanos(meanThinkMillis);
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    @Override
+    public void run() {
+        Broadcaster.register(broadcasterListener);
+        try {
+            while (running) {
+                synchronized (this) {
+                    try {
+                        step();
+                    } catch (RuntimeException e) {
+                        stats.errors.increment();
+                        e.printStackTrace();
+                    }
+                }
+                think();
+            }
+        } finally {
+            Broadcaster.unregister(broadcasterListener);
+            synchronized (this) {
+                if (editing != null) {
+                    LockRegistry.release(editing.getId(), sessionId);
+                    editing = null;
+                }
+            }
+        }
+    }
+
+    private void step() {
+        if (editing != null) {
+            finishEdit();
+            return;
+        }
+        int action = random.nextInt(100);
+        if (action < 45) {
+            scroll();
+        } else if (action < 70) {
+            typeFilter();
+        } else {
+            startEdit();
+        }
+    }
+
+    private void scroll() {
+        long start = System.nanoTime();
+        if (size < 0) {
+            size = provider.size(new Query<>(filter));
+        }
+        offset = offset + PAGE_SIZE < size ? offset + PAGE_SIZE : 0;
+        page();
+        stats.scroll.recordSince(start);
+        stats.operations.increment();
+    }
+
+    // Types a word (or clears the filter) one character at a time; every keystroke re-queries the grid
+    private void typeFilter() {
+        if (random.nextInt(4) == 0 || !filter.getConstraints().isEmpty()) {
+            keystroke(null);
+            return;
+        }
+        String word = FILTER_WORDS[random.nextInt(FILTER_WORDS.length)];
+        for (int length = 1; length <= word.length(); length++) {
+            keystroke(word.substring(0, length));
+        }
+    }
+
+    private void keystroke(String text) {
+        long start = System.nanoTime();
+        filter = new CrudFilter();
+        if (text != null) {
+            filter.getConstraints().put("name", text);
+        }
+        offset = 0;
+        size = provider.size(new Query<>(filter));
+        page();
+        stats.filter.recordSince(start);
+        stats.operations.increment();
+    }
+
+    // Double click on a visible row, as in MainView: lock first, open the editor only if acquired
+    private void startEdit() {
+        List<Person> rows = page();
+        if (rows.isEmpty()) {
+            return;
+        }
+        Person person = rows.get(random.nextInt(rows.size()));
+        long start = System.nanoTime();
+        boolean acquired = LockRegistry.tryAcquire(person.getId(), sessionId, person.getName());
+        stats.lock.recordSince(start);
+        stats.lockAttempts.increment();
+        stats.operations.increment();
+        if (acquired) {
+            editing = person;
+        } else {
+            stats.lockConflicts.increment();
+        }
+    }
+
+    // Three out of four edits are saved, the rest cancelled; either way the lock is released
+    private void finishEdit() {
+        Person person = editing;
+        editing = null;
+        long start = System.nanoTime();
+        if (random.nextInt(4) != 0) {
+            person.setCity(CITIES[random.nextInt(CITIES.length)]);
+            dataService.save(person); // what PersonDataProvider.persist does in DB mode
+            LockRegistry.release(person.getId(), sessionId);
+            stats.save.recordSince(start);
+            stats.saves.increment();
+        } else {
+            LockRegistry.release(person.getId(), sessionId);
+            stats.cancels.increment();
+        }
+        stats.operations.increment();
+    }
+
+    private List<Person> page() {
+        return provider.fetch(new Query<>(offset, PAGE_SIZE, List.of(), null, filter))
+                .collect(Collectors.toList());
+    }
+
+    // Broadcaster thread: hand over to the push executor, like ui.access() in MainView
+    private void onBroadcast(String message) {
+        if (!running) {
+            return;
+        }
+        stats.pushes.increment();
+        pushExecutor.execute(() -> {
+            synchronized (this) {
+                if ("DATA_UPDATED".equals(message)) {
+                    // crud.getDataProvider().refreshAll(): the grid recounts and reloads its page
+                    long start = System.nanoTime();
+                    size = provider.size(new Query<>(filter));
+                    page();
+                    stats.refresh.recordSince(start);
+                }
+                // LOCK/UNLOCK only show a notification in MainView
+            }
+        });
+    }
+
+    // Exponentially distributed think time, so sessions do not act in lock step
+    private void think() {
+        long nanos = (long) (-meanThinkNanos * Math.log(1 - random.nextDouble()));
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.phonebook;
+
+import com.example.phonebook.journal.Journal;
+import com.example.phonebook.journal.JournalEntry;
+import com.example.phonebook.model.Person;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.button.Button;
+import com.vaadin.flow.component.dialog.Dialog;
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.html.Span;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Audit history of one contact from the change journal, newest first: when, what kind of
+ * change, and which fields changed from what to what.
+ */
+public class ContactHistoryDialog extends Dialog {
+
+    private static final int LIMIT = 200;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+
+    public ContactHistoryDialog(Journal journal, Person contact) {
+        setHeaderTitle("History of " + contact.getName());
+        setWidth("900px");
+
+        Grid<JournalEntry> grid = new Grid<>();
+        grid.addColumn(JournalEntry::seq).setHeader("#").setFlexGrow(0);
+        grid.addColumn(e -> TIME.format(Instant.ofEpochMilli(e.timestamp()))).setHeader("Time").setFlexGrow(1);
+        grid.addColumn(e -> e.type().name().toLowerCase()).setHeader("Change").setFlexGrow(0);
+        grid.addColumn(ContactHistoryDialog::describe).setHeader("Details").setFlexGrow(4);
+        grid.setHeight("400px");
+
+        // Older history is read from the segments on disk: not on the UI thread
+        Span status = new Span("Loading…");
+        VerticalLayout content = new VerticalLayout(grid, status);
+        UI ui = UI.getCurrent();
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return journal.history(contact.getId(), LIMIT);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((entries, error) -> ui.access(() -> {
+            if (error != null) {
+                error.printStackTrace();
+                status.setText("History could not be read: " + error.getMessage());
+                return;
+            }
+            grid.setItems(entries);
+            status.setText(entries.isEmpty()
+                    ? "No recorded changes (the journal reaches back to its oldest snapshot)." : "");
+            status.setVisible(entries.isEmpty());
+        }));
+
+        getFooter().add(new Button("Close", event -> close()));
+        add(content);
+    }
+
+    // "city: Oslo → Bergen, phone: … → …" for updates, the full record for inserts and deletes
+    static String describe(JournalEntry entry) {
+        if (entry.before() == null || entry.after() == null) {
+            Person p = entry.after() != null ? entry.after() : entry.before();
+            return p == null ? "" : String.join(", ", nonNull(p.getName(), p.getPhone(), p.getEmail(),
+                    p.getStreet(), p.getCity(), p.getCountry()));
+        }
+        List<String> changes = new ArrayList<>();
+        diff(changes, "name", entry, Person::getName);
+        diff(changes, "phone", entry, Person::getPhone);
+        diff(changes, "email", entry, Person::getEmail);
+        diff(changes, "street", entry, Person::getStreet);
+        diff(changes, "city", entry, Person::getCity);
+        diff(changes, "country", entry, Person::getCountry);
+        return changes.isEmpty() ? "no field changed" : String.join(", ", changes);
+    }
+
+    private static void diff(List<String> changes, String field, JournalEntry entry, Function<Person, String> value) {
+        String before = value.apply(entry.before());
+        String after = value.apply(entry.after());
+        if (!Objects.equals(before, after)) {
+            changes.add(field + ": " + (before == null ? "–" : before) + " → " + (after == null ? "–" : after));
+        }
+    }
+
+    private static List<String> nonNull(String... values) {
+        List<String> result = new ArrayList<>();
+        for (String v : values) {
+            if (v != null && !v.isBlank()) {
+                result.add(v);
+            }
+        }
+        return result;
+    }
+}
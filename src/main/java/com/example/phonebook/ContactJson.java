@@ -0,0 +1,67 @@
+package com.example.phonebook;
+
+import com.example.phonebook.model.Person;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Minimal JSON output for the contacts API, written straight to the response
+ * (no intermediate String or tree per contact).
+ */
+final class ContactJson {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private ContactJson() {}
+
+    static void write(Writer out, Person p) throws IOException {
+        out.write("{\"id\":");
+        out.write(p.getId() == null ? "null" : p.getId().toString());
+        field(out, "name", p.getName());
+        field(out, "phone", p.getPhone());
+        field(out, "email", p.getEmail());
+        field(out, "country", p.getCountry());
+        field(out, "city", p.getCity());
+        field(out, "street", p.getStreet());
+        out.write('}');
+    }
+
+    static void field(Writer out, String name, String value) throws IOException {
+        out.write(",\"");
+        out.write(name);
+        out.write("\":");
+        string(out, value);
+    }
+
+    static void string(Writer out, String value) throws IOException {
+        if (value == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> {
+                    // control characters, and the line/paragraph separators JavaScript does not allow in strings
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        out.write("\\u");
+                        out.write(HEX[(c >> 12) & 0xF]);
+                        out.write(HEX[(c >> 8) & 0xF]);
+                        out.write(HEX[(c >> 4) & 0xF]);
+                        out.write(HEX[c & 0xF]);
+                    } else {
+                        out.write(c);
+                    }
+                }
+            }
+        }
+        out.write('"');
+    }
+}
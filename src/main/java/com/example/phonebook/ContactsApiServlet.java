@@ -0,0 +1,312 @@
+package com.example.phonebook;
+
+import com.example.phonebook.journal.Journal;
+import com.example.phonebook.journal.JournalEntry;
+import com.example.phonebook.metrics.Counter;
+import com.example.phonebook.metrics.LatencyHistogram;
+import com.example.phonebook.metrics.Metrics;
+import com.example.phonebook.model.Person;
+import com.example.phonebook.repository.DataService;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stateless read-only JSON API for other services, served from the DataService cache
+ * (no Vaadin session per client). The more specific "/api/contacts/*" mapping wins over
+ * MainServlet's "/*".
+ *
+ *   GET /api/contacts/{id}
+ *   GET /api/contacts/phone/{phone}
+ *   GET /api/contacts?country=pak&city=lah&sort=name&limit=100&cursor=...
+ *       -> {"items":[...],"next":"<cursor of the next page>" | null}
+ *   GET /api/contacts/changes?since=1234&limit=500
+ *       -> {"latest":1300,"entries":[{"seq":1235,"time":...,"type":"UPDATE","id":7,"contact":{...}}],
+ *           "next":1300 | null}
+ *       changes from the journal after sequence number since ("contact" is null for deletes);
+ *       404 if journaling is disabled, 410 if since is older than the retained journal
+ *
+ * Listing filters (name, phone, email, country, city, street) match like the grid filters
+ * (case-insensitive "contains"). Paging is by cursor, so polling clients do not skip or repeat
+ * contacts when others are inserted or deleted in between.
+ *
+ * Every response carries a weak ETag with the DataService data version; a request with a
+ * matching If-None-Match gets 304 without touching the data. Responses are gzipped when the
+ * client accepts it.
+ */
+@WebServlet(urlPatterns = "/api/contacts/*", name = "ContactsApiServlet")
+public class ContactsApiServlet extends HttpServlet {
+
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+    private static final int DEFAULT_CHANGES_LIMIT = 500;
+    private static final int MAX_CHANGES_LIMIT = 5000;
+    private static final Set<String> FILTERS = Set.of("name", "phone", "email", "country", "city", "street");
+
+    private static final LatencyHistogram REQUESTS = Metrics.histogram("api_request");
+    private static final Counter NOT_MODIFIED = Metrics.counter("api_not_modified");
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        long start = System.nanoTime();
+        try {
+            // validate the path first: a malformed URL must get 404, never 304
+            String path = req.getPathInfo();
+            boolean byId = path != null && !"/".equals(path) && !"/changes".equals(path) && !path.startsWith("/phone/");
+            Integer id = byId ? parseInt(path.substring(1)) : null;
+            if (byId && id == null) {
+                error(resp, HttpServletResponse.SC_NOT_FOUND, "Unknown resource " + path);
+                return;
+            }
+
+            DataService dataService = DataService.getInstance();
+            // read before the data: if it changes meanwhile the client just fetches again next time
+            String etag = "W/\"" + dataService.version() + "\"";
+            resp.setHeader("Vary", "Accept-Encoding");
+            if (notModified(req.getHeader("If-None-Match"), etag)) {
+                NOT_MODIFIED.inc();
+                resp.setHeader("ETag", etag);
+                resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+
+            if (path == null || "/".equals(path)) {
+                list(req, resp, dataService, etag);
+            } else if ("/changes".equals(path)) {
+                changes(req, resp, dataService, etag);
+            } else if (path.startsWith("/phone/")) {
+                one(req, resp, Optional.ofNullable(dataService.getFromCache(path.substring("/phone/".length()))), etag);
+            } else {
+                // cache only: the cache holds every contact, so a miss is a 404 without a database query
+                one(req, resp, Optional.ofNullable(dataService.getFromCache(id)), etag);
+            }
+        } finally {
+            REQUESTS.recordSince(start);
+        }
+    }
+
+    private void one(HttpServletRequest req, HttpServletResponse resp, Optional<Person> contact, String etag)
+            throws IOException {
+        if (contact.isEmpty()) {
+            error(resp, HttpServletResponse.SC_NOT_FOUND, "Contact not found");
+            return;
+        }
+        try (Writer out = open(req, resp, etag)) {
+            ContactJson.write(out, contact.get());
+        }
+    }
+
+    private void list(HttpServletRequest req, HttpServletResponse resp, DataService dataService, String etag)
+            throws IOException {
+        String sort = Optional.ofNullable(req.getParameter("sort")).orElse(DataService.NAME);
+        if (!DataService.isIndexed(sort)) {
+            error(resp, HttpServletResponse.SC_BAD_REQUEST, "sort must be name, city or country");
+            return;
+        }
+        Integer limit = req.getParameter("limit") == null ? Integer.valueOf(DEFAULT_LIMIT) : parseInt(req.getParameter("limit"));
+        if (limit == null || limit < 1 || limit > MAX_LIMIT) {
+            error(resp, HttpServletResponse.SC_BAD_REQUEST, "limit must be between 1 and " + MAX_LIMIT);
+            return;
+        }
+        Cursor after = null;
+        if (req.getParameter("cursor") != null) {
+            after = Cursor.decode(req.getParameter("cursor"));
+            if (after == null || !after.property().equals(sort)) {
+                error(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid cursor");
+                return;
+            }
+        }
+        Map<String, String> constraints = new LinkedHashMap<>();
+        for (String name : FILTERS) {
+            String value = req.getParameter(name);
+            if (value != null && !value.isEmpty()) {
+                constraints.put(name, value);
+            }
+        }
+
+        List<Person> page = dataService.findAfter(sort, constraints,
+                after == null ? null : after.id(), after == null ? null : after.key(), limit);
+
+        try (Writer out = open(req, resp, etag)) {
+            out.write("{\"items\":[");
+            for (int i = 0; i < page.size(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                ContactJson.write(out, page.get(i));
+            }
+            out.write("],\"next\":");
+            if (page.size() < limit) {
+                out.write("null");
+            } else {
+                Person last = page.get(page.size() - 1);
+                ContactJson.string(out, new Cursor(sort, last.getId(), dataService.key(sort, last.getId())).encode());
+            }
+            out.write('}');
+        }
+    }
+
+    private void changes(HttpServletRequest req, HttpServletResponse resp, DataService dataService, String etag)
+            throws IOException {
+        Optional<Journal> journal = dataService.journal();
+        if (journal.isEmpty()) {
+            error(resp, HttpServletResponse.SC_NOT_FOUND, "Change journal is disabled");
+            return;
+        }
+        Long since = req.getParameter("since") == null ? Long.valueOf(0) : parseLong(req.getParameter("since"));
+        if (since == null || since < 0) {
+            error(resp, HttpServletResponse.SC_BAD_REQUEST, "since must be a sequence number");
+            return;
+        }
+        Integer limit = req.getParameter("limit") == null ? Integer.valueOf(DEFAULT_CHANGES_LIMIT) : parseInt(req.getParameter("limit"));
+        if (limit == null || limit < 1 || limit > MAX_CHANGES_LIMIT) {
+            error(resp, HttpServletResponse.SC_BAD_REQUEST, "limit must be between 1 and " + MAX_CHANGES_LIMIT);
+            return;
+        }
+        long latest = journal.get().lastSeq();
+        if (since < journal.get().oldestSeq() - 1) {
+            // the client missed changes that are no longer available: it has to re-read the list
+            error(resp, HttpServletResponse.SC_GONE, "Changes before " + journal.get().oldestSeq() + " are not retained");
+            return;
+        }
+        List<JournalEntry> entries = journal.get().readSince(since, limit);
+
+        try (Writer out = open(req, resp, etag)) {
+            out.write("{\"latest\":" + latest + ",\"entries\":[");
+            for (int i = 0; i < entries.size(); i++) {
+                JournalEntry e = entries.get(i);
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write("{\"seq\":" + e.seq() + ",\"time\":" + e.timestamp() + ",\"type\":\"" + e.type()
+                        + "\",\"id\":" + e.contactId() + ",\"contact\":");
+                if (e.after() == null) {
+                    out.write("null");
+                } else {
+                    ContactJson.write(out, e.after());
+                }
+                out.write('}');
+            }
+            out.write("],\"next\":");
+            out.write(entries.size() < limit ? "null" : String.valueOf(entries.get(entries.size() - 1).seq()));
+            out.write('}');
+        }
+    }
+
+    private static Writer open(HttpServletRequest req, HttpServletResponse resp, String etag) throws IOException {
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("ETag", etag);
+        resp.setHeader("Cache-Control", "no-cache"); // may be stored, but must be revalidated
+        OutputStream out = resp.getOutputStream();
+        if (acceptsGzip(req.getHeader("Accept-Encoding"))) {
+            resp.setHeader("Content-Encoding", "gzip");
+            out = new GZIPOutputStream(out, 8192);
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+    }
+
+    private static void error(HttpServletResponse resp, int status, String message) throws IOException {
+        resp.setStatus(status);
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "no-store");
+        Writer out = resp.getWriter();
+        out.write("{\"error\":");
+        ContactJson.string(out, message);
+        out.write('}');
+        out.flush();
+    }
+
+    // If-None-Match uses weak comparison, so "1" matches W/"1"
+    static boolean notModified(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String current = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] coding = part.trim().split(";");
+            if (coding[0].trim().equals("gzip")) {
+                return coding.length < 2 || !coding[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static Integer parseInt(String value) {
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Long parseLong(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Position after the last contact of a page: sort property, its value there and the id.
+     * Sent as opaque URL-safe Base64.
+     */
+    record Cursor(String property, int id, String key) {
+
+        String encode() {
+            String raw = property + ":" + id + ":" + (key == null ? "" : "=" + key);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String value) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+                String[] parts = raw.split(":", 3);
+                if (parts.length < 3) {
+                    return null;
+                }
+                String key = parts[2].isEmpty() ? null : parts[2].substring(1);
+                return new Cursor(parts[0], Integer.parseInt(parts[1]), key);
+            } catch (IllegalArgumentException e) { // bad Base64 or id
+                return null;
+            }
+        }
+    }
+}
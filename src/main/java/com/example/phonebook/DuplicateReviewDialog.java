@@ -0,0 +1,126 @@
+package com.example.phonebook;
+
+import com.example.phonebook.dedup.DuplicateDetector;
+import com.example.phonebook.dedup.DuplicateGroup;
+import com.example.phonebook.model.Person;
+import com.example.phonebook.repository.DataService;
+import com.example.phonebook.repository.RepositoryException;
+import com.vaadin.flow.component.button.Button;
+import com.vaadin.flow.component.button.ButtonVariant;
+import com.vaadin.flow.component.dialog.Dialog;
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.html.Span;
+import com.vaadin.flow.component.notification.Notification;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Review screen for probable duplicates: pick a group, pick the contact to keep, merge.
+ * "Not duplicates" only hides the group until the next scan.
+ */
+public class DuplicateReviewDialog extends Dialog {
+
+    private final DuplicateDetector detector;
+    private final String sessionId;
+    private final Runnable onMerged;
+
+    private final List<DuplicateGroup> groups;
+    private final Grid<DuplicateGroup> groupGrid = new Grid<>();
+    private final Grid<Person> contactGrid = new Grid<>();
+    private final Span hint = new Span("Select a group, then the contact to keep.");
+    private final Button mergeButton = new Button("Merge into selected");
+    private final Button dismissButton = new Button("Not duplicates");
+
+    public DuplicateReviewDialog(List<DuplicateGroup> groups, DuplicateDetector detector, String sessionId,
+                                 Runnable onMerged) {
+        this.groups = new ArrayList<>(groups);
+        this.detector = detector;
+        this.sessionId = sessionId;
+        this.onMerged = onMerged;
+
+        setWidth("900px");
+        updateTitle();
+
+        groupGrid.addColumn(g -> g.contacts().stream().map(Person::getName).distinct()
+                .collect(Collectors.joining(" / "))).setHeader("Contacts").setFlexGrow(2);
+        groupGrid.addColumn(g -> g.contacts().size()).setHeader("Records").setFlexGrow(0);
+        groupGrid.addColumn(g -> String.format(Locale.ROOT, "%.0f%%", g.score() * 100)).setHeader("Match").setFlexGrow(0);
+        groupGrid.addColumn(DuplicateGroup::reason).setHeader("Why").setFlexGrow(2);
+        groupGrid.setHeight("220px");
+        groupGrid.setItems(this.groups);
+        groupGrid.addSelectionListener(event -> showGroup(event.getFirstSelectedItem().orElse(null)));
+
+        contactGrid.addColumn(Person::getName).setHeader("Name");
+        contactGrid.addColumn(Person::getPhone).setHeader("Phone");
+        contactGrid.addColumn(Person::getEmail).setHeader("Email");
+        contactGrid.addColumn(Person::getStreet).setHeader("Street");
+        contactGrid.addColumn(Person::getCity).setHeader("City");
+        contactGrid.addColumn(Person::getCountry).setHeader("Country");
+        contactGrid.setHeight("200px");
+        contactGrid.addSelectionListener(event -> updateButtons());
+
+        mergeButton.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
+        mergeButton.addClickListener(event -> mergeSelected());
+        dismissButton.addClickListener(event -> dismissSelected());
+        Button close = new Button("Close", event -> close());
+        getFooter().add(close, dismissButton, mergeButton);
+        updateButtons();
+
+        add(new VerticalLayout(groupGrid, hint, contactGrid));
+    }
+
+    private void showGroup(DuplicateGroup group) {
+        contactGrid.setItems(group == null ? List.of() : group.contacts());
+        if (group != null && !group.contacts().isEmpty()) {
+            contactGrid.select(group.contacts().get(0));
+        }
+        updateButtons();
+    }
+
+    private void mergeSelected() {
+        DuplicateGroup group = groupGrid.getSelectedItems().stream().findFirst().orElse(null);
+        Person keep = contactGrid.getSelectedItems().stream().findFirst().orElse(null);
+        if (group == null || keep == null) {
+            return;
+        }
+        DataService.BatchResult result;
+        try {
+            result = detector.merge(keep, group.contacts(), sessionId);
+        } catch (RepositoryException e) {
+            Notification.show("Merge failed: " + e.getMessage(), 5000, Notification.Position.MIDDLE);
+            return;
+        }
+        String message = "Merged " + result.applied() + " duplicates into " + keep.getName();
+        if (!result.lockedIds().isEmpty()) {
+            message += ", " + result.lockedIds().size() + " skipped (being edited by another user)";
+        }
+        Notification.show(message, 4000, Notification.Position.BOTTOM_START);
+        removeGroup(group);
+        onMerged.run();
+    }
+
+    private void dismissSelected() {
+        groupGrid.getSelectedItems().stream().findFirst().ifPresent(this::removeGroup);
+    }
+
+    private void removeGroup(DuplicateGroup group) {
+        groups.remove(group);
+        groupGrid.setItems(groups);
+        showGroup(null);
+        updateTitle();
+    }
+
+    private void updateButtons() {
+        boolean groupSelected = !groupGrid.getSelectedItems().isEmpty();
+        mergeButton.setEnabled(groupSelected && !contactGrid.getSelectedItems().isEmpty());
+        dismissButton.setEnabled(groupSelected);
+    }
+
+    private void updateTitle() {
+        setHeaderTitle(groups.isEmpty() ? "No probable duplicates" : "Probable duplicates (" + groups.size() + ")");
+    }
+}
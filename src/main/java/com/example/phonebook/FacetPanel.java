@@ -0,0 +1,51 @@
+package com.example.phonebook;
+
+import com.vaadin.flow.component.details.Details;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.html.H4;
+import com.vaadin.flow.component.html.Span;
+import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
+
+import java.util.Map;
+
+/**
+ * Collapsible panel showing how many contacts (under the current grid filter)
+ * there are per country and per city.
+ */
+public class FacetPanel extends Details {
+
+    // Only the largest buckets are listed, the rest is summarised
+    private static final int MAX_ROWS = 10;
+
+    private final Div countries = new Div();
+    private final Div cities = new Div();
+
+    public FacetPanel() {
+        setSummaryText("Contacts by country / city");
+        HorizontalLayout content = new HorizontalLayout(countries, cities);
+        content.setWidthFull();
+        setContent(content);
+        setOpened(false);
+    }
+
+    public void update(Map<String, Long> countryCounts, Map<String, Long> cityCounts) {
+        fill(countries, "Country", countryCounts);
+        fill(cities, "City", cityCounts);
+    }
+
+    private static void fill(Div column, String title, Map<String, Long> counts) {
+        column.removeAll();
+        column.add(new H4(title));
+        int shown = 0;
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            if (shown++ == MAX_ROWS) {
+                column.add(new Div(new Span("… " + (counts.size() - MAX_ROWS) + " more")));
+                break;
+            }
+            column.add(new Div(new Span(entry.getKey() + ": " + entry.getValue())));
+        }
+        if (counts.isEmpty()) {
+            column.add(new Div(new Span("No contacts")));
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.example.phonebook;
 
 
+import com.example.phonebook.dedup.DuplicateDetector;
+import com.example.phonebook.dedup.DuplicateGroup;
+import com.example.phonebook.dedup.DuplicateMatch;
 import com.example.phonebook.lock.Broadcaster;
 import com.example.phonebook.lock.LockRegistry;
 import com.example.phonebook.model.Person;
 import com.example.phonebook.repository.DataService;
+import com.example.phonebook.repository.RepositoryException;
 import com.vaadin.flow.component.AttachEvent;
 import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.UI;
@@ -12,16 +16,20 @@ import com.vaadin.flow.component.button.ButtonVariant;
 import com.vaadin.flow.component.crud.BinderCrudEditor;
 import com.vaadin.flow.component.crud.Crud;
 import com.vaadin.flow.component.crud.CrudEditor;
+import com.vaadin.flow.component.crud.CrudFilter;
 
+import com.vaadin.flow.component.dialog.Dialog;
 import com.vaadin.flow.component.formlayout.FormLayout;
 import com.vaadin.flow.component.grid.Grid;
 import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.html.Span;
 
 
 import com.vaadin.flow.component.notification.Notification;
 
 import com.vaadin.flow.component.textfield.EmailField;
 import com.vaadin.flow.component.textfield.TextField;
+import com.vaadin.flow.data.value.ValueChangeMode;
 import com.vaadin.flow.data.binder.Binder;
 
 import com.vaadin.flow.router.Route;
@@ -32,10 +40,13 @@ import com.vaadin.flow.component.icon.VaadinIcon;
 
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 
@@ -43,6 +54,16 @@ import java.util.function.Consumer;
 public class MainView extends Div {
 
     private Crud<Person> crud;
+    private PersonDataProvider dataProvider;
+    private final FacetPanel facetPanel = new FacetPanel();
+    // Shown while the database is unreachable and the grid shows the cached data
+    private final Span staleBanner = new Span("Database unreachable: showing the last loaded contacts, changes cannot be saved right now.");
+    private CrudFilter currentFilter;
+    private Button deleteSelectedButton;
+    private Button setLocationButton;
+    private Button findDuplicatesButton;
+    private Button historyButton;
+    private final DuplicateDetector duplicateDetector = new DuplicateDetector(DataService.getInstance());
 
     private String NAME = "name";
     private String PHONE_NUMBER= "phone";
@@ -66,7 +87,10 @@ public class MainView extends Div {
 
         setupToolbar();
 
-        add(crud);
+        staleBanner.getElement().setAttribute("theme", "badge error");
+        staleBanner.setVisible(DataService.getInstance().isStale());
+
+        add(staleBanner, facetPanel, crud);
     }
 
     private void setupToolbar() {
@@ -76,6 +100,155 @@ public class MainView extends Div {
         });
         button.addThemeVariants(ButtonVariant.LUMO_TERTIARY);
         crud.setNewButton(button);
+
+        // Bulk actions on the rows selected in the grid
+        deleteSelectedButton = new Button("Delete selected", VaadinIcon.TRASH.create(),
+                event -> confirmBulkDelete());
+        deleteSelectedButton.addThemeVariants(ButtonVariant.LUMO_TERTIARY, ButtonVariant.LUMO_ERROR);
+        setLocationButton = new Button("Set country/city", VaadinIcon.GLOBE.create(),
+                event -> openBulkLocationDialog());
+        setLocationButton.addThemeVariants(ButtonVariant.LUMO_TERTIARY);
+        // Change history of one contact, from the journal (hidden if journaling is disabled)
+        historyButton = new Button("History", VaadinIcon.CLOCK.create(), event -> openHistory());
+        historyButton.addThemeVariants(ButtonVariant.LUMO_TERTIARY);
+        historyButton.setVisible(DataService.getInstance().journal().isPresent());
+        updateBulkButtons(0);
+        findDuplicatesButton = new Button("Find duplicates", VaadinIcon.USERS.create(),
+                event -> scanForDuplicates());
+        findDuplicatesButton.addThemeVariants(ButtonVariant.LUMO_TERTIARY);
+        // Global search over all fields (word prefixes), on top of the column filters
+        TextField search = new TextField();
+        search.setPlaceholder("Search all fields");
+        search.setPrefixComponent(VaadinIcon.SEARCH.create());
+        search.setClearButtonVisible(true);
+        search.setValueChangeMode(ValueChangeMode.LAZY);
+        search.addValueChangeListener(event -> {
+            dataProvider.setSearch(event.getValue());
+            crud.getDataProvider().refreshAll();
+        });
+        crud.setToolbar(search, deleteSelectedButton, setLocationButton, findDuplicatesButton, historyButton);
+    }
+
+    // Full scan in the background (can take seconds on a large phonebook), then the review dialog
+    private void scanForDuplicates() {
+        UI ui = UI.getCurrent();
+        findDuplicatesButton.setEnabled(false);
+        CompletableFuture.supplyAsync(duplicateDetector::scanAll).whenComplete((groups, error) -> ui.access(() -> {
+            findDuplicatesButton.setEnabled(true);
+            if (error != null) {
+                error.printStackTrace();
+                Notification.show("Duplicate scan failed: " + error.getMessage(), 5000, Notification.Position.MIDDLE);
+                return;
+            }
+            openDuplicateReview(groups);
+        }));
+    }
+
+    private void openDuplicateReview(List<DuplicateGroup> groups) {
+        new DuplicateReviewDialog(groups, duplicateDetector, sessionId,
+                () -> crud.getDataProvider().refreshAll()).open();
+    }
+
+    // Incremental check after a save: warn about probable duplicates with a shortcut to the review
+    private void checkDuplicates(Person saved) {
+        List<DuplicateMatch> matches = duplicateDetector.findDuplicates(saved);
+        if (matches.isEmpty()) {
+            return;
+        }
+        DuplicateMatch best = matches.get(0);
+        List<Person> contacts = new ArrayList<>();
+        contacts.add(saved);
+        matches.forEach(match -> contacts.add(match.contact()));
+
+        Notification notification = new Notification();
+        notification.setDuration(8000);
+        notification.setPosition(Notification.Position.BOTTOM_START);
+        Button review = new Button("Review", event -> {
+            notification.close();
+            openDuplicateReview(List.of(new DuplicateGroup(contacts, best.score(), best.reason())));
+        });
+        review.addThemeVariants(ButtonVariant.LUMO_TERTIARY_INLINE);
+        notification.add(new Span("Possible duplicate of " + best.contact().getName() + " (" + best.reason() + ")"),
+                review);
+        notification.open();
+    }
+
+    private void updateBulkButtons(int selected) {
+        deleteSelectedButton.setEnabled(selected > 0);
+        setLocationButton.setEnabled(selected > 0);
+        historyButton.setEnabled(selected == 1);
+    }
+
+    private void openHistory() {
+        Person selected = crud.getGrid().getSelectedItems().stream().findFirst().orElse(null);
+        DataService.getInstance().journal().ifPresent(journal -> {
+            if (selected != null && selected.getId() != null) {
+                new ContactHistoryDialog(journal, selected).open();
+            }
+        });
+    }
+
+    private void confirmBulkDelete() {
+        Set<Person> selected = crud.getGrid().getSelectedItems();
+        if (selected.isEmpty()) {
+            return;
+        }
+        Dialog dialog = new Dialog();
+        dialog.setHeaderTitle("Delete " + selected.size() + " contacts?");
+        Button delete = new Button("Delete", event -> {
+            dialog.close();
+            try {
+                reportBatch("Deleted", dataProvider.deleteAll(selected, sessionId));
+            } catch (RepositoryException ex) {
+                Notification.show("Delete failed: " + ex.getMessage(), 5000, Notification.Position.MIDDLE);
+            }
+        });
+        delete.addThemeVariants(ButtonVariant.LUMO_PRIMARY, ButtonVariant.LUMO_ERROR);
+        Button cancel = new Button("Cancel", event -> dialog.close());
+        dialog.getFooter().add(cancel, delete);
+        dialog.open();
+    }
+
+    private void openBulkLocationDialog() {
+        Set<Person> selected = crud.getGrid().getSelectedItems();
+        if (selected.isEmpty()) {
+            return;
+        }
+        TextField country = new TextField("Country");
+        TextField city = new TextField("City");
+        country.setPlaceholder("unchanged");
+        city.setPlaceholder("unchanged");
+
+        Dialog dialog = new Dialog(new FormLayout(country, city));
+        dialog.setHeaderTitle("Set country/city of " + selected.size() + " contacts");
+        Button apply = new Button("Apply", event -> {
+            String newCountry = country.getValue() == null || country.getValue().isBlank() ? null : country.getValue().trim();
+            String newCity = city.getValue() == null || city.getValue().isBlank() ? null : city.getValue().trim();
+            if (newCountry == null && newCity == null) {
+                Notification.show("Enter a country and/or a city", 3000, Notification.Position.MIDDLE);
+                return;
+            }
+            dialog.close();
+            try {
+                reportBatch("Updated", dataProvider.updateAll(selected, newCountry, newCity, sessionId));
+            } catch (RepositoryException ex) {
+                Notification.show("Update failed: " + ex.getMessage(), 5000, Notification.Position.MIDDLE);
+            }
+        });
+        apply.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
+        Button cancel = new Button("Cancel", event -> dialog.close());
+        dialog.getFooter().add(cancel, apply);
+        dialog.open();
+    }
+
+    private void reportBatch(String action, DataService.BatchResult result) {
+        String message = action + " " + result.applied() + " contacts";
+        if (!result.lockedIds().isEmpty()) {
+            message += ", " + result.lockedIds().size() + " skipped (being edited by another user)";
+        }
+        Notification.show(message, 4000, Notification.Position.BOTTOM_START);
+        crud.getGrid().deselectAll();
+        crud.getDataProvider().refreshAll();
     }
 
     private CrudEditor<Person> createEditor() {
@@ -151,6 +324,10 @@ public class MainView extends Div {
                 grid.getColumnByKey(EDIT_COLUMN));
 
         Crud.removeEditColumn(grid);
+
+        // Multi-select for the bulk actions in the toolbar
+        grid.setSelectionMode(Grid.SelectionMode.MULTI);
+        grid.addSelectionListener(event -> updateBulkButtons(event.getAllSelectedItems().size()));
         // grid.removeColumnByKey(EDIT_COLUMN);
         // grid.removeColumn(grid.getColumnByKey(EDIT_COLUMN));
 
@@ -192,9 +369,15 @@ public class MainView extends Div {
 
     private void setupDataProvider() {
         DataService dataService = DataService.getInstance(); // use central singleton
-        PersonDataProvider dataProvider = new PersonDataProvider(dataService, true); // true = DB mode, false = in-memory
+        dataProvider = new PersonDataProvider(dataService, true); // true = DB mode, false = in-memory
         crud.setDataProvider(dataProvider);
 
+        // Recount the facets whenever the grid applies a new filter (or refreshes)
+        dataProvider.setFilterChangeListener(filter -> {
+            currentFilter = filter;
+            getUI().ifPresent(ui -> ui.access(this::updateFacets));
+        });
+
         crud.addSaveListener(saveEvent -> {
             Person saved = saveEvent.getItem();
             // Persist first (so DB is updated). If persist throws, we do not release lock.
@@ -209,6 +392,12 @@ public class MainView extends Div {
                 Notification.show("Save failed: " + ex.getMessage(), 5000, Notification.Position.MIDDLE);
                 throw ex; // rethrow if you want Crud to handle it
             }
+            // the save is committed; a failing duplicate check must not report it as failed
+            try {
+                checkDuplicates(saved);
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
         });
 
         crud.addDeleteListener(deleteEvent -> {
@@ -259,16 +448,26 @@ public class MainView extends Div {
         super.onDetach(detachEvent);
     }
 
+    private void updateFacets() {
+        facetPanel.update(dataProvider.countByCountry(currentFilter),
+                dataProvider.countByCity(currentFilter));
+    }
+
     private void handleBroadcastMessage(String message) {
         try {
             // Expect messages like "LOCK:123:sessionId:metaEncoded" or "UNLOCK:123:sessionId"
             if (message == null || message.isEmpty()) return;
             if ("DATA_UPDATED".equals(message)) {
                 // Refresh grid data when someone else makes CRUD changes
-                crud.getDataProvider().refreshAll();
+                crud.getDataProvider().refreshAll(); // recount also refreshes the facets
+                staleBanner.setVisible(DataService.getInstance().isStale()); // e.g. cache reloaded after an outage
                 Notification.show("Data updated by another user", 3000, Notification.Position.BOTTOM_START);
                 return;
             }
+            if ("REPOSITORY_UNAVAILABLE".equals(message) || "REPOSITORY_AVAILABLE".equals(message)) {
+                staleBanner.setVisible(DataService.getInstance().isStale());
+                return;
+            }
             String[] parts = message.split(":", 4);
             String type = parts[0];
             int recordId = Integer.parseInt(parts[1]);
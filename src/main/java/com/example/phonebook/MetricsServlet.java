@@ -0,0 +1,27 @@
+package com.example.phonebook;
+
+import com.example.phonebook.metrics.Metrics;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Prometheus scrape endpoint. The exact "/metrics" mapping takes precedence over MainServlet's "/*".
+ */
+@WebServlet(urlPatterns = "/metrics", name = "MetricsServlet")
+public class MetricsServlet extends HttpServlet {
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setContentType("text/plain; version=0.0.4");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "no-store");
+        PrintWriter out = resp.getWriter();
+        Metrics.writePrometheus(out);
+        out.flush();
+    }
+}
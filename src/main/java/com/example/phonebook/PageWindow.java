@@ -0,0 +1,105 @@
+package com.example.phonebook;
+
+import com.example.phonebook.model.Person;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Small per-session cache of grid rows around the current scroll position, in aligned
+ * blocks of BLOCK rows. Valid for one filter/sort key and one DataService version: a
+ * different key or version (every row change bumps it) drops all blocks.
+ * The current key is the one the grid last asked for (get()); rows for another key are
+ * only stored if their version is strictly newer, so a prefetch for the previous filter
+ * finishing late cannot replace the current window.
+ * Least recently used blocks are evicted beyond maxBlocks.
+ */
+final class PageWindow {
+
+    static final int BLOCK = 50;
+
+    private final int maxBlocks;
+    private Object key;
+    private long version = -1;
+    // block index -> rows (a block shorter than BLOCK is the end of the data)
+    private final LinkedHashMap<Integer, List<Person>> blocks;
+
+    PageWindow(int maxBlocks) {
+        this.maxBlocks = maxBlocks;
+        this.blocks = new LinkedHashMap<>(maxBlocks * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Person>> eldest) {
+                return size() > PageWindow.this.maxBlocks;
+            }
+        };
+    }
+
+    /**
+     * Rows [offset, offset + limit) if every block they need is cached, else null.
+     */
+    synchronized List<Person> get(Object key, long version, int offset, int limit) {
+        if (!valid(key, version)) {
+            if (version >= this.version) {
+                reset(key, version); // the grid moved on: this is the current view now
+            }
+            return null;
+        }
+        List<Person> rows = new ArrayList<>(limit);
+        int end = offset + limit;
+        for (int block = offset / BLOCK; block * BLOCK < end; block++) {
+            List<Person> cached = blocks.get(block);
+            if (cached == null) {
+                return null;
+            }
+            int from = Math.max(offset - block * BLOCK, 0);
+            int to = Math.min(end - block * BLOCK, cached.size());
+            if (from < to) {
+                rows.addAll(cached.subList(from, to));
+            }
+            if (cached.size() < BLOCK) {
+                break; // end of the data
+            }
+        }
+        return rows;
+    }
+
+    synchronized boolean contains(Object key, long version, int block) {
+        return valid(key, version) && blocks.containsKey(block);
+    }
+
+    /**
+     * Stores rows starting at the aligned offset firstBlock * BLOCK, split into blocks.
+     * Ignored unless they are for the current key and version or strictly newer.
+     */
+    synchronized void put(Object key, long version, int firstBlock, List<Person> rows, boolean endOfData) {
+        if (!valid(key, version)) {
+            if (version <= this.version) {
+                return; // stale prefetch finishing late (older data, or another view of the same data)
+            }
+            reset(key, version);
+        }
+        for (int i = 0; i * BLOCK < rows.size() || (i == 0 && endOfData); i++) {
+            List<Person> block = rows.subList(i * BLOCK, Math.min((i + 1) * BLOCK, rows.size()));
+            if (block.size() == BLOCK || endOfData) {
+                blocks.put(firstBlock + i, new ArrayList<>(block));
+            }
+        }
+    }
+
+    synchronized void clear() {
+        reset(null, -1);
+    }
+
+    private void reset(Object key, long version) {
+        blocks.clear();
+        this.key = key;
+        this.version = version;
+    }
+
+    private boolean valid(Object key, long version) {
+        return this.version == version && Objects.equals(this.key, key);
+    }
+}
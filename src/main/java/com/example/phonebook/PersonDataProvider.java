@@ -3,33 +3,87 @@ package com.example.phonebook;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import com.example.phonebook.lock.LockRegistry;
+import com.example.phonebook.metrics.Counter;
+import com.example.phonebook.metrics.LatencyHistogram;
+import com.example.phonebook.metrics.Metrics;
 import com.example.phonebook.model.Person;
 import com.example.phonebook.repository.DataService;
+import com.example.phonebook.repository.PersonRepository;
+import com.example.phonebook.repository.PersonRepositoryInMemory;
 import com.vaadin.flow.component.crud.CrudFilter;
 import com.vaadin.flow.data.provider.AbstractBackEndDataProvider;
 import com.vaadin.flow.data.provider.Query;
 import com.vaadin.flow.data.provider.SortDirection;
-import static java.util.Comparator.naturalOrder;
 
 public class PersonDataProvider
         extends AbstractBackEndDataProvider<Person, CrudFilter> {
 
-    // A real app should hook up something like JPA
-    private final List<Person> DATABASE = new ArrayList<>();
+    private static final LatencyHistogram FETCH = Metrics.histogram("grid_fetch");
+    private static final LatencyHistogram SIZE = Metrics.histogram("grid_size");
+    private static final LatencyHistogram PREFETCH = Metrics.histogram("grid_prefetch");
+    private static final Counter WINDOW_HIT = Metrics.counter("grid_window_hit");
+    private static final Counter WINDOW_MISS = Metrics.counter("grid_window_miss");
+    private static final Counter PREFETCH_SKIPPED = Metrics.counter("grid_prefetch_skipped");
+
+    // Node-wide cap on prefetches in flight, so many scrolling users cannot flood the backend;
+    // a prefetch that finds no free permit is skipped, never queued.
+    private static final Semaphore PREFETCH_PERMITS = new Semaphore(Integer.getInteger("phonebook.grid.prefetchPermits", 4));
+    private static final ExecutorService PREFETCH_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "grid-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+    // A request within this time of the previous one, moving at least a block, is a fast scroll
+    private static final long FAST_SCROLL_NANOS = 300_000_000L;
+    private static final int WINDOW_BLOCKS = 16;
+
+    // In-memory backend shared by all sessions (used when useDatabase == false)
+    private final PersonRepository memoryRepository = PersonRepositoryInMemory.getShared();
     private final DataService dataService;
     private final boolean useDatabase;
+    private final boolean pageWindow;
     private Consumer<Long> sizeChangeListener;
+    private Consumer<CrudFilter> filterChangeListener;
+
+    // Rows around this session's scroll position, filled ahead of the scroll direction (DB mode)
+    private final PageWindow window = new PageWindow(WINDOW_BLOCKS);
+    private int lastOffset = -1;
+    private long lastFetchNanos;
+
+    // Global search text (all fields, word prefixes), combined with the column filters; null = off
+    private String search;
+    // Result of the last search, reused by the size and page requests that follow it
+    private Object searchKey;
+    private List<Person> searchResult;
 
     public PersonDataProvider(DataService dataService, boolean useDatabase) {
+        this(dataService, useDatabase, true);
+    }
+
+    /**
+     * pageWindow = false loads every page from the DataService, without window and prefetch
+     * (used to measure the load path itself).
+     */
+    public PersonDataProvider(DataService dataService, boolean useDatabase, boolean pageWindow) {
         this.dataService = dataService;
         this.useDatabase = useDatabase;
+        this.pageWindow = pageWindow;
     }
 
 
@@ -41,43 +95,286 @@ public class PersonDataProvider
         int offset = query.getOffset();
         int limit = query.getLimit();
 
-        // Always work on DATABASE list
-        if (useDatabase) {
-            DATABASE.clear();
-            DATABASE.addAll(dataService.findAll()); // load everything once
+        CrudFilter filter = query.getFilter().orElse(null);
+
+        // materialise the page here so the histogram measures the actual work
+        long start = System.nanoTime();
+        List<Person> page;
+        if (search != null) {
+            List<Person> matches = searchResult(filter);
+            page = matches.subList(Math.min(offset, matches.size()), Math.min(offset + limit, matches.size()));
+        } else if (useDatabase && pageWindow) {
+            page = fetchThroughWindow(filter, offset, limit);
+        } else {
+            page = load(filter, offset, limit);
+        }
+        FETCH.recordSince(start);
+        return page.stream();
+    }
+
+    private List<Person> load(CrudFilter filter, int offset, int limit) {
+        Map.Entry<String, Boolean> indexedOrder = useDatabase ? indexedOrder(filter) : null;
+        if (indexedOrder != null) {
+            return dataService.findPage(indexedOrder.getKey(), indexedOrder.getValue(),
+                    filter == null ? Map.of() : filter.getConstraints(), offset, limit);
+        }
+        return filteredAndSorted(filter).skip(offset).limit(limit).collect(Collectors.toList());
+    }
+
+    /**
+     * Serves the page from the window if it is there, otherwise loads the aligned blocks
+     * covering it. Then prefetches one page (two when scrolling fast) further in the scroll
+     * direction in the background.
+     */
+    private List<Person> fetchThroughWindow(CrudFilter filter, int offset, int limit) {
+        Object key = windowKey(filter);
+        long version = dataService.version();
+
+        List<Person> page = window.get(key, version, offset, limit);
+        if (page != null) {
+            WINDOW_HIT.inc();
+        } else {
+            WINDOW_MISS.inc();
+            int firstBlock = offset / PageWindow.BLOCK;
+            int lastBlock = (offset + limit - 1) / PageWindow.BLOCK;
+            int blockLimit = (lastBlock - firstBlock + 1) * PageWindow.BLOCK;
+            List<Person> rows = load(filter, firstBlock * PageWindow.BLOCK, blockLimit);
+            window.put(key, version, firstBlock, rows, rows.size() < blockLimit);
+            int from = Math.min(offset - firstBlock * PageWindow.BLOCK, rows.size());
+            page = new ArrayList<>(rows.subList(from, Math.min(from + limit, rows.size())));
+        }
+
+        long now = System.nanoTime();
+        int direction = lastOffset < 0 ? 1 : Integer.signum(offset - lastOffset);
+        boolean fast = lastOffset >= 0 && now - lastFetchNanos < FAST_SCROLL_NANOS
+                && Math.abs(offset - lastOffset) >= PageWindow.BLOCK;
+        lastOffset = offset;
+        lastFetchNanos = now;
+        if (direction != 0 && page.size() == limit) {
+            int pages = fast ? 2 : 1;
+            int from = direction > 0 ? offset + limit : Math.max(0, offset - pages * limit);
+            int to = direction > 0 ? offset + limit + pages * limit : offset;
+            prefetch(filter, key, version, from, to);
+        }
+        return page;
+    }
+
+    private void prefetch(CrudFilter filter, Object key, long version, int from, int to) {
+        int firstBlock = from / PageWindow.BLOCK;
+        int lastBlock = (to - 1) / PageWindow.BLOCK;
+        // only the blocks not cached yet
+        while (firstBlock <= lastBlock && window.contains(key, version, firstBlock)) {
+            firstBlock++;
+        }
+        while (lastBlock >= firstBlock && window.contains(key, version, lastBlock)) {
+            lastBlock--;
+        }
+        if (firstBlock > lastBlock) {
+            return;
+        }
+        if (!PREFETCH_PERMITS.tryAcquire()) {
+            PREFETCH_SKIPPED.inc();
+            return;
         }
+        int start = firstBlock;
+        int blockLimit = (lastBlock - firstBlock + 1) * PageWindow.BLOCK;
+        // Crud reuses and changes its filter on the UI thread; the task loads from a copy
+        // taken together with the key, so the rows always belong to that key
+        CrudFilter snapshot = copyOf(filter);
+        try {
+            PREFETCH_EXECUTOR.execute(() -> {
+                long begin = System.nanoTime();
+                try {
+                    if (dataService.version() == version) { // changed meanwhile: would be dropped anyway
+                        List<Person> rows = load(snapshot, start * PageWindow.BLOCK, blockLimit);
+                        window.put(key, version, start, rows, rows.size() < blockLimit);
+                    }
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                } finally {
+                    PREFETCH_PERMITS.release();
+                    PREFETCH.recordSince(begin);
+                }
+            });
+        } catch (RuntimeException e) {
+            PREFETCH_PERMITS.release();
+            throw e;
+        }
+    }
 
-        Stream<Person> stream = DATABASE.stream();
+    /**
+     * Turns the global search on (null or blank text turns it off). The caller refreshes the grid.
+     */
+    public void setSearch(String text) {
+        search = DataService.searchTerms(text).isEmpty() ? null : text;
+        searchResult = null;
+    }
 
-        if (query.getFilter().isPresent()) {
-            stream = stream.filter(predicate(query.getFilter().get()))
-                    .sorted(comparator(query.getFilter().get()));
+    // Search hits under the column filters, sorted as the grid asks (name order by default)
+    private List<Person> searchResult(CrudFilter filter) {
+        Map<String, String> constraints = filter == null ? Map.of() : filter.getConstraints();
+        Object key = List.of(search, windowKey(filter), useDatabase ? dataService.version() : -1L);
+        if (searchResult != null && key.equals(searchKey)) {
+            return searchResult;
+        }
+        List<Person> matches;
+        if (useDatabase) {
+            matches = dataService.search(search, constraints);
+        } else {
+            List<String> terms = DataService.searchTerms(search);
+            Stream<Person> stream = memoryRepository.findAll().stream()
+                    .filter(person -> DataService.matchesTerms(person, terms));
+            if (filter != null) {
+                stream = stream.filter(predicate(filter));
+            }
+            matches = stream.limit(DataService.MAX_SEARCH_RESULTS).collect(Collectors.toList());
+        }
+        if (filter != null && !filter.getSortOrders().isEmpty()) {
+            matches.sort(comparator(filter));
         }
+        searchKey = key;
+        searchResult = matches;
+        return matches;
+    }
 
-        return stream.skip(offset).limit(limit);
+    private static CrudFilter copyOf(CrudFilter filter) {
+        if (filter == null) {
+            return null;
+        }
+        CrudFilter copy = new CrudFilter();
+        copy.getConstraints().putAll(filter.getConstraints());
+        copy.getSortOrders().putAll(filter.getSortOrders());
+        return copy;
     }
 
+    // Identifies what the window holds: filter values and sort orders (in priority order)
+    private static Object windowKey(CrudFilter filter) {
+        if (filter == null) {
+            return List.of();
+        }
+        return List.of(new HashMap<>(filter.getConstraints()), filter.getSortOrders().entrySet().stream()
+                .map(sort -> Map.entry(sort.getKey(), sort.getValue()))
+                .collect(Collectors.toList()));
+    }
 
+    @Override
+    public void refreshAll() {
+        window.clear();
+        searchResult = null;
+        super.refreshAll();
+    }
 
     @Override
-    protected int sizeInBackEnd(Query<Person, CrudFilter> query) {
-        // Just apply same logic on DATABASE
-        Stream<Person> stream = fetchFromBackEnd(query);
+    public void refreshItem(Person item) {
+        window.clear();
+        super.refreshItem(item);
+    }
+
+    /**
+     * Contacts matching the filter, in the order it requests.
+     * In DB mode a single sort on name/city/country (or the default name order) walks the
+     * matching DataService index; only other sorts fall back to sorting the stream.
+     */
+    private Stream<Person> filteredAndSorted(CrudFilter filter) {
+        Map<String, String> constraints = filter == null ? Map.of() : filter.getConstraints();
+        Map<String, SortDirection> sortOrders = filter == null ? Map.of() : filter.getSortOrders();
+
+        if (!useDatabase) {
+            Stream<Person> stream = memoryRepository.findAll().stream(); // ordered by name
+            if (filter != null) {
+                stream = stream.filter(predicate(filter));
+            }
+            return sortOrders.isEmpty() ? stream : stream.sorted(comparator(filter));
+        }
 
-        if (query.getFilter().isPresent()) {
-            stream = stream.filter(predicate(query.getFilter().get()));
+        Map.Entry<String, Boolean> indexedOrder = indexedOrder(filter);
+        if (indexedOrder != null) {
+            return dataService.streamOrderedBy(indexedOrder.getKey(), indexedOrder.getValue(), constraints);
         }
+        return dataService.streamOrderedBy(DataService.NAME, true, constraints).sorted(comparator(filter));
+    }
+
+    // The DataService index (property -> ascending) that yields the requested order, or null
+    private static Map.Entry<String, Boolean> indexedOrder(CrudFilter filter) {
+        Map<String, SortDirection> sortOrders = filter == null ? Map.of() : filter.getSortOrders();
+        if (sortOrders.isEmpty()) {
+            return Map.entry(DataService.NAME, true);
+        }
+        if (sortOrders.size() == 1) {
+            Map.Entry<String, SortDirection> sort = sortOrders.entrySet().iterator().next();
+            if (DataService.isIndexed(sort.getKey())) {
+                return Map.entry(sort.getKey(), sort.getValue() != SortDirection.DESCENDING);
+            }
+        }
+        return null;
+    }
 
-        long count = stream.count();
+
+
+    @Override
+    protected int sizeInBackEnd(Query<Person, CrudFilter> query) {
+        // Same filter as fetchFromBackEnd, but counting needs no ordering
+        long start = System.nanoTime();
+        CrudFilter filter = query.getFilter().orElse(null);
+
+        long count;
+        if (search != null) {
+            count = searchResult(filter).size();
+        } else if (filter == null || filter.getConstraints().isEmpty()) {
+            count = useDatabase ? dataService.count() : memoryRepository.findAll().size();
+        } else if (useDatabase) {
+            count = dataService.count(filter.getConstraints());
+        } else {
+            count = memoryRepository.findAll().stream().filter(predicate(filter)).count();
+        }
+        SIZE.recordSince(start);
 
         if (sizeChangeListener != null) {
             sizeChangeListener.accept(count);
         }
+        if (filterChangeListener != null) {
+            filterChangeListener.accept(filter);
+        }
 
         return (int) count;
     }
 
 
+    /**
+     * Called with the grid filter (may be null) every time the grid recounts its rows,
+     * i.e. after each filter change or refresh.
+     */
+    public void setFilterChangeListener(Consumer<CrudFilter> filterChangeListener) {
+        this.filterChangeListener = filterChangeListener;
+    }
+
+    // Contacts per country under the given grid filter, largest first
+    public Map<String, Long> countByCountry(CrudFilter filter) {
+        if (useDatabase) {
+            return dataService.countByCountry(filter == null ? Map.of() : filter.getConstraints());
+        }
+        return countInMemory(filter, Person::getCountry);
+    }
+
+    // Contacts per city under the given grid filter, largest first
+    public Map<String, Long> countByCity(CrudFilter filter) {
+        if (useDatabase) {
+            return dataService.countByCity(filter == null ? Map.of() : filter.getConstraints());
+        }
+        return countInMemory(filter, Person::getCity);
+    }
+
+    private Map<String, Long> countInMemory(CrudFilter filter, Function<Person, String> facet) {
+        Stream<Person> stream = memoryRepository.findAll().stream();
+        if (filter != null) {
+            stream = stream.filter(predicate(filter));
+        }
+        return DataService.largestFirst(stream
+                .filter(person -> facet.apply(person) != null)
+                .collect(Collectors.groupingBy(facet, Collectors.counting())));
+    }
+
+
     private static Predicate<Person> predicate(CrudFilter filter) {
         // For RDBMS just generate a WHERE clause
         return filter.getConstraints().entrySet().stream()
@@ -127,18 +424,10 @@ public class PersonDataProvider
     void persist(Person item) {
         if (useDatabase) {
             dataService.save(item);
+        } else if (item.getId() != null && find(item.getId()).isPresent()) {
+            memoryRepository.update(item);
         } else {
-            if (item.getId() == null) {
-                item.setId(DATABASE.stream().map(Person::getId).max(naturalOrder()).orElse(0) + 1);
-            }
-            final Optional<Person> existingItem = find(item.getId());
-            if (existingItem.isPresent()) {
-                int position = DATABASE.indexOf(existingItem.get());
-                DATABASE.remove(existingItem.get());
-                DATABASE.add(position, item);
-            } else {
-                DATABASE.add(item);
-            }
+            memoryRepository.add(item); // assigns the id from the sequence
         }
     }
 
@@ -147,7 +436,7 @@ public class PersonDataProvider
         if (useDatabase) {
             return dataService.findById(id);
         } else {
-            return DATABASE.stream().filter(entity -> entity.getId().equals(id)).findFirst();
+            return memoryRepository.findById(id);
         }
     }
 
@@ -156,7 +445,41 @@ public class PersonDataProvider
         if (useDatabase) {
             dataService.delete(item);
         } else {
-            DATABASE.removeIf(entity -> entity.getId().equals(item.getId()));
+            memoryRepository.delete(item);
+        }
+    }
+
+    // Bulk delete, skipping records another session is editing
+    DataService.BatchResult deleteAll(Collection<Person> items, String sessionId) {
+        if (useDatabase) {
+            return dataService.deleteAll(items, sessionId);
+        }
+        List<Integer> locked = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        for (Person item : items) {
+            if (LockRegistry.isLockedByOther(item.getId(), sessionId)) {
+                locked.add(item.getId());
+            } else {
+                ids.add(item.getId());
+            }
+        }
+        return new DataService.BatchResult(memoryRepository.deleteAll(ids), locked);
+    }
+
+    // Bulk "set country/city" (null = unchanged), skipping records another session is editing
+    DataService.BatchResult updateAll(Collection<Person> items, String country, String city, String sessionId) {
+        if (useDatabase) {
+            return dataService.updateAll(items, country, city, sessionId);
+        }
+        List<Integer> locked = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        for (Person item : items) {
+            if (LockRegistry.isLockedByOther(item.getId(), sessionId)) {
+                locked.add(item.getId());
+            } else {
+                ids.add(item.getId());
+            }
         }
+        return new DataService.BatchResult(memoryRepository.updateAll(ids, country, city).size(), locked);
     }
 }
@@ -1,24 +1,67 @@
 package com.example.phonebook.db;
 
+import com.example.phonebook.metrics.LatencyHistogram;
+import com.example.phonebook.metrics.Metrics;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Properties;
 
 public class Database {
-    private static final String URL = "jdbc:mysql://localhost:3306/phonebook_db";
-    private static final String USER = "root";
-    private static final String PASSWORD = "root";
+    // Overridable with -Dphonebook.db.url=... etc., e.g. to point the load test at an embedded database
+    private static final String URL = System.getProperty("phonebook.db.url", "jdbc:mysql://localhost:3306/phonebook_db");
+    private static final String USER = System.getProperty("phonebook.db.user", "root");
+    private static final String PASSWORD = System.getProperty("phonebook.db.password", "root");
+
+    // Per-statement timeouts (seconds): single-row statements and whole-table / batch statements
+    public static final int QUERY_TIMEOUT_SECONDS = Integer.getInteger("phonebook.db.queryTimeout", 5);
+    public static final int BULK_TIMEOUT_SECONDS = Integer.getInteger("phonebook.db.bulkTimeout", 30);
+    // Connection establishment timeout (seconds), so an unreachable host fails fast
+    private static final int CONNECT_TIMEOUT_SECONDS = Integer.getInteger("phonebook.db.connectTimeout", 5);
+
+    private static final LatencyHistogram CONNECTION_ACQUIRE = Metrics.histogram("db_connection_acquire");
 
     static {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver"); // Load MySQL driver
-        } catch (ClassNotFoundException e) {
-            throw new RuntimeException("Failed to load MySQL driver", e);
+        if (URL.startsWith("jdbc:mysql:")) {
+            try {
+                Class.forName("com.mysql.cj.jdbc.Driver"); // Load MySQL driver
+            } catch (ClassNotFoundException e) {
+                throw new RuntimeException("Failed to load MySQL driver", e);
+            }
         }
+        DriverManager.setLoginTimeout(CONNECT_TIMEOUT_SECONDS);
+    }
+
+    // The migration scripts and FULLTEXT search use MySQL (and TiDB) syntax
+    public static boolean isMySql() {
+        return URL.startsWith("jdbc:mysql:");
+    }
+
+    // Which database this is (user@url, no password), e.g. to keep per-database local state apart
+    public static String identity() {
+        return USER + "@" + URL;
     }
 
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        long start = System.nanoTime();
+        try {
+            Properties props = new Properties();
+            props.setProperty("user", USER);
+            props.setProperty("password", PASSWORD);
+            if (URL.startsWith("jdbc:mysql:")) {
+                if (!URL.contains("connectTimeout")) {
+                    props.setProperty("connectTimeout", String.valueOf(CONNECT_TIMEOUT_SECONDS * 1000));
+                }
+                if (!URL.contains("rewriteBatchedStatements")) {
+                    // executeBatch() sends the batch in as few round trips as possible (updateAll)
+                    props.setProperty("rewriteBatchedStatements", "true");
+                }
+            }
+            return DriverManager.getConnection(URL, props);
+        } finally {
+            CONNECTION_ACQUIRE.recordSince(start);
+        }
     }
 }
 
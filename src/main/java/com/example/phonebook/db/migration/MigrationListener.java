@@ -0,0 +1,31 @@
+package com.example.phonebook.db.migration;
+
+import com.example.phonebook.db.Database;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+/**
+ * Brings the database schema up to date when the web application starts, before the first
+ * request can touch the database. Only for MySQL/TiDB URLs (the scripts use MySQL syntax);
+ * -Dphonebook.db.migrate=false turns it off.
+ */
+@WebListener
+public class MigrationListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        if (!Boolean.parseBoolean(System.getProperty("phonebook.db.migrate", "true")) || !Database.isMySql()) {
+            return;
+        }
+        try {
+            int applied = MigrationRunner.migrate();
+            if (applied > 0) {
+                System.out.println("Database schema migrated (" + applied + " migrations applied)");
+            }
+        } catch (Exception e) {
+            // keep starting: the application works with the existing schema, only slower
+            e.printStackTrace();
+        }
+    }
+}
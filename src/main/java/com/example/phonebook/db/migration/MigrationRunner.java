@@ -0,0 +1,244 @@
+package com.example.phonebook.db.migration;
+
+import com.example.phonebook.db.Database;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned schema migrations: classpath scripts db/migration/V<version>__<description>.sql,
+ * applied in version order, each at most once. Applied versions are recorded in the
+ * schema_version table together with a checksum of the script.
+ *
+ * MySQL DDL commits implicitly, so a migration is not atomic: a failed one stops the run and
+ * is not recorded, so it is retried at the next start. Scripts are therefore written to be
+ * re-runnable: a statement preceded by "-- phonebook:if <query>" lines only runs if every
+ * query returns a positive number (e.g. a count from information_schema), so a re-run skips
+ * what the failed run already did.
+ * A script starting with "-- phonebook:optional" may fail without stopping the run; it is
+ * recorded as skipped and not retried.
+ *
+ * Concurrent starts on several nodes are serialized with GET_LOCK.
+ */
+public final class MigrationRunner {
+
+    // Scripts in version order. Listed here because a WAR's classpath cannot be listed reliably.
+    static final List<String> SCRIPTS = List.of(
+            "V1__create_contacts.sql",
+            "V2__search_indexes.sql",
+            "V3__fulltext_search.sql");
+
+    private static final String LOCATION = "db/migration/";
+    private static final String OPTIONAL_MARKER = "-- phonebook:optional";
+    private static final String CONDITION_MARKER = "-- phonebook:if ";
+    private static final String LOCK_NAME = "phonebook_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    /**
+     * One migration script.
+     */
+    record Migration(int version, String description, String script, long checksum, boolean optional) {
+    }
+
+    /**
+     * One statement of a script and the queries that must all return a positive number for it to run.
+     */
+    record Step(String sql, List<String> conditions) {
+    }
+
+    private MigrationRunner() {}
+
+    /**
+     * Applies all pending migrations and returns how many were applied.
+     */
+    public static int migrate() throws SQLException, IOException {
+        List<Migration> migrations = load();
+        try (Connection conn = Database.getConnection()) {
+            lock(conn);
+            try {
+                createVersionTable(conn);
+                Map<Integer, Long> applied = appliedChecksums(conn);
+                int count = 0;
+                for (Migration migration : migrations) {
+                    Long checksum = applied.get(migration.version());
+                    if (checksum != null) {
+                        if (checksum != migration.checksum()) {
+                            System.err.println("Migration V" + migration.version()
+                                    + " was changed after it was applied (checksum mismatch); not re-run");
+                        }
+                        continue;
+                    }
+                    if (apply(conn, migration)) {
+                        count++;
+                    }
+                }
+                return count;
+            } finally {
+                unlock(conn);
+            }
+        }
+    }
+
+    static List<Migration> load() throws IOException {
+        List<Migration> migrations = new ArrayList<>();
+        for (String name : SCRIPTS) {
+            String script;
+            try (InputStream in = MigrationRunner.class.getClassLoader().getResourceAsStream(LOCATION + name)) {
+                if (in == null) {
+                    throw new IOException("Migration script not found: " + LOCATION + name);
+                }
+                script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            int separator = name.indexOf("__");
+            int version = Integer.parseInt(name.substring(1, separator));
+            String description = name.substring(separator + 2, name.length() - ".sql".length()).replace('_', ' ');
+            CRC32 crc = new CRC32();
+            crc.update(script.getBytes(StandardCharsets.UTF_8));
+            migrations.add(new Migration(version, description, script, crc.getValue(),
+                    script.startsWith(OPTIONAL_MARKER)));
+        }
+        return migrations;
+    }
+
+    private static boolean apply(Connection conn, Migration migration) throws SQLException {
+        long start = System.nanoTime();
+        List<Step> steps = statements(migration.script());
+        int done = 0;
+        try (Statement stmt = conn.createStatement()) {
+            for (Step step : steps) {
+                if (holds(stmt, step.conditions())) {
+                    stmt.execute(step.sql());
+                }
+                done++;
+            }
+        } catch (SQLException e) {
+            if (!migration.optional()) {
+                // name the statement: the ones before it are applied (DDL commits), it and the rest are not
+                throw new SQLException("Migration V" + migration.version() + " (" + migration.description()
+                        + ") failed at statement " + (done + 1) + " of " + steps.size() + " ["
+                        + steps.get(done).sql() + "]: " + e.getMessage()
+                        + "; not recorded, it is retried at the next start",
+                        e.getSQLState(), e.getErrorCode(), e);
+            }
+            System.err.println("Optional migration V" + migration.version() + " (" + migration.description()
+                    + ") skipped: " + e.getMessage());
+            record(conn, migration, false, start);
+            return false;
+        }
+        record(conn, migration, true, start);
+        System.out.println("Applied migration V" + migration.version() + " (" + migration.description() + ")");
+        return true;
+    }
+
+    private static boolean holds(Statement stmt, List<String> conditions) throws SQLException {
+        for (String condition : conditions) {
+            try (ResultSet rs = stmt.executeQuery(condition)) {
+                if (!rs.next() || rs.getLong(1) <= 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits a script into statements: ';' at the end of a line ends a statement,
+     * lines starting with "--" are comments, "-- phonebook:if <query>" lines are conditions
+     * of the next statement.
+     */
+    static List<Step> statements(String script) {
+        List<Step> statements = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith(CONDITION_MARKER)) {
+                conditions.add(trimmed.substring(CONDITION_MARKER.length()).trim());
+                continue;
+            }
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                String sql = current.toString().trim();
+                statements.add(new Step(sql.substring(0, sql.length() - 1), List.copyOf(conditions)));
+                current.setLength(0);
+                conditions.clear();
+            }
+        }
+        if (!current.toString().isBlank()) {
+            statements.add(new Step(current.toString().trim(), List.copyOf(conditions)));
+        }
+        return statements;
+    }
+
+    private static void createVersionTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+                    + " version INT NOT NULL PRIMARY KEY,"
+                    + " description VARCHAR(200) NOT NULL,"
+                    + " checksum BIGINT NOT NULL,"
+                    + " success BOOLEAN NOT NULL,"
+                    + " execution_ms INT NOT NULL,"
+                    + " installed_on TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        }
+    }
+
+    private static Map<Integer, Long> appliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+        return applied;
+    }
+
+    private static void record(Connection conn, Migration migration, boolean success, long startNanos)
+            throws SQLException {
+        String sql = "INSERT INTO schema_version (version, description, checksum, success, execution_ms)"
+                + " VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, migration.version());
+            stmt.setString(2, migration.description());
+            stmt.setLong(3, migration.checksum());
+            stmt.setBoolean(4, success);
+            stmt.setInt(5, (int) ((System.nanoTime() - startNanos) / 1_000_000));
+            stmt.executeUpdate();
+        }
+    }
+
+    private static void lock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for the migration lock held by another node");
+                }
+            }
+        }
+    }
+
+    private static void unlock(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            e.printStackTrace(); // released with the connection anyway
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.phonebook.dedup;
+
+import com.example.phonebook.lock.LockRegistry;
+import com.example.phonebook.metrics.Counter;
+import com.example.phonebook.metrics.LatencyHistogram;
+import com.example.phonebook.metrics.Metrics;
+import com.example.phonebook.model.Person;
+import com.example.phonebook.repository.DataService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds probable duplicate contacts in the DataService cache.
+ *
+ * Only contacts sharing a blocking key (DuplicateIndex) are scored (DuplicateScorer), so a
+ * check costs a few dozen comparisons instead of one per contact. Used incrementally after
+ * a save (findDuplicates) and as a full parallel scan for the review dialog (scanAll).
+ *
+ * The match threshold can be set with -Dphonebook.dedup.threshold (default 0.75).
+ */
+public class DuplicateDetector {
+
+    // Blocks larger than this (a very common name in one city) are skipped: too many pairs, too little signal
+    static final int MAX_BLOCK = 500;
+    // Blocks per fork/join leaf task in scanAll
+    private static final int SCAN_LEAF_BLOCKS = 256;
+
+    private static final LatencyHistogram CHECK = Metrics.histogram("dedup_check");
+    private static final LatencyHistogram SCAN = Metrics.histogram("dedup_scan");
+    private static final Counter SCORED = Metrics.counter("dedup_pairs_scored");
+
+    private final DataService dataService;
+    private final double threshold;
+
+    public DuplicateDetector(DataService dataService) {
+        this(dataService, Double.parseDouble(System.getProperty("phonebook.dedup.threshold",
+                String.valueOf(DuplicateScorer.DEFAULT_THRESHOLD))));
+    }
+
+    public DuplicateDetector(DataService dataService, double threshold) {
+        this.dataService = dataService;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Probable duplicates of the given contact (which need not be saved yet), best match first.
+     */
+    public List<DuplicateMatch> findDuplicates(Person contact) {
+        long start = System.nanoTime();
+        try {
+            int[] candidates = dataService.duplicateIndex().candidates(contact.getName(), contact.getPhone(),
+                    contact.getEmail(), contact.getCity(), MAX_BLOCK);
+            List<DuplicateMatch> matches = new ArrayList<>();
+            for (int id : candidates) {
+                if (contact.getId() != null && contact.getId() == id) {
+                    continue;
+                }
+                Person other = dataService.getFromCache(id);
+                if (other == null) {
+                    continue;
+                }
+                DuplicateScorer.Score score = DuplicateScorer.score(contact, other);
+                SCORED.inc();
+                if (score.value() >= threshold) {
+                    matches.add(new DuplicateMatch(other, score.value(), score.reason()));
+                }
+            }
+            matches.sort(Comparator.comparingDouble(DuplicateMatch::score).reversed());
+            return matches;
+        } finally {
+            CHECK.recordSince(start);
+        }
+    }
+
+    /**
+     * All groups of probable duplicates in the phonebook, strongest first. The blocks are
+     * scored in parallel on the common fork/join pool.
+     */
+    public List<DuplicateGroup> scanAll() {
+        long start = System.nanoTime();
+        try {
+            List<int[]> blocks = dataService.duplicateIndex().blocksWithPairs();
+            ConcurrentMap<Long, Pair> pairs = new ConcurrentHashMap<>();
+            ForkJoinPool.commonPool().invoke(new ScanTask(blocks, 0, blocks.size(), pairs));
+            return group(pairs.values());
+        } finally {
+            SCAN.recordSince(start);
+        }
+    }
+
+    /**
+     * Keeps the survivor, fills its empty fields from the duplicates and deletes the duplicates.
+     * Nothing happens to records another session is editing; they are reported as locked.
+     */
+    public DataService.BatchResult merge(Person survivor, Collection<Person> duplicates, String sessionId) {
+        Person keep = survivor.getId() == null ? null : dataService.getFromCache(survivor.getId());
+        if (keep == null) {
+            return new DataService.BatchResult(0, List.of());
+        }
+        if (LockRegistry.isLockedByOther(keep.getId(), sessionId)) {
+            return new DataService.BatchResult(0, List.of(keep.getId()));
+        }
+        List<Person> others = new ArrayList<>();
+        boolean filled = false;
+        for (Person duplicate : duplicates) {
+            if (duplicate.getId() == null || duplicate.getId().equals(keep.getId())) {
+                continue;
+            }
+            others.add(duplicate);
+            Person current = Objects.requireNonNullElse(dataService.getFromCache(duplicate.getId()), duplicate);
+            if (isBlank(keep.getEmail()) && !isBlank(current.getEmail())) {
+                keep.setEmail(current.getEmail());
+                filled = true;
+            }
+            if (isBlank(keep.getStreet()) && !isBlank(current.getStreet())) {
+                keep.setStreet(current.getStreet());
+                filled = true;
+            }
+            if (isBlank(keep.getCity()) && !isBlank(current.getCity())) {
+                keep.setCity(current.getCity());
+                filled = true;
+            }
+            if (isBlank(keep.getCountry()) && !isBlank(current.getCountry())) {
+                keep.setCountry(current.getCountry());
+                filled = true;
+            }
+        }
+        if (filled) {
+            dataService.save(keep);
+        }
+        return dataService.deleteAll(others, sessionId);
+    }
+
+    private record Pair(int first, int second, double score, String reason) {
+    }
+
+    private final class ScanTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<int[]> blocks;
+        private final int from;
+        private final int to;
+        private final ConcurrentMap<Long, Pair> pairs;
+
+        ScanTask(List<int[]> blocks, int from, int to, ConcurrentMap<Long, Pair> pairs) {
+            this.blocks = blocks;
+            this.from = from;
+            this.to = to;
+            this.pairs = pairs;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SCAN_LEAF_BLOCKS) {
+                for (int i = from; i < to; i++) {
+                    scoreBlock(blocks.get(i), pairs);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ScanTask(blocks, from, middle, pairs), new ScanTask(blocks, middle, to, pairs));
+        }
+    }
+
+    private void scoreBlock(int[] ids, ConcurrentMap<Long, Pair> pairs) {
+        if (ids.length > MAX_BLOCK) {
+            return;
+        }
+        Person[] people = new Person[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            people[i] = dataService.getFromCache(ids[i]);
+        }
+        for (int i = 0; i < people.length; i++) {
+            for (int j = i + 1; j < people.length; j++) {
+                if (people[i] == null || people[j] == null) {
+                    continue;
+                }
+                int a = Math.min(ids[i], ids[j]);
+                int b = Math.max(ids[i], ids[j]);
+                long key = ((long) a << 32) | (b & 0xffffffffL);
+                if (pairs.containsKey(key)) {
+                    continue; // already found through another block
+                }
+                DuplicateScorer.Score score = DuplicateScorer.score(people[i], people[j]);
+                SCORED.inc();
+                if (score.value() >= threshold) {
+                    pairs.putIfAbsent(key, new Pair(a, b, score.value(), score.reason()));
+                }
+            }
+        }
+    }
+
+    // Connected components of the matching pairs (union-find), each with its strongest pair
+    private List<DuplicateGroup> group(Collection<Pair> pairs) {
+        Map<Integer, Integer> parent = new HashMap<>();
+        for (Pair p : pairs) {
+            union(parent, p.first(), p.second());
+        }
+        Map<Integer, List<Integer>> members = new HashMap<>();
+        for (Integer id : parent.keySet()) {
+            members.computeIfAbsent(root(parent, id), r -> new ArrayList<>()).add(id);
+        }
+        Map<Integer, Pair> best = new HashMap<>();
+        for (Pair p : pairs) {
+            best.merge(root(parent, p.first()), p, (x, y) -> x.score() >= y.score() ? x : y);
+        }
+
+        List<DuplicateGroup> groups = new ArrayList<>();
+        members.forEach((root, ids) -> {
+            List<Person> contacts = new ArrayList<>(ids.size());
+            for (Integer id : ids) {
+                Person p = dataService.getFromCache(id);
+                if (p != null) {
+                    contacts.add(p);
+                }
+            }
+            if (contacts.size() > 1) {
+                contacts.sort(Comparator.comparing(Person::getId));
+                Pair strongest = best.get(root);
+                groups.add(new DuplicateGroup(contacts, strongest.score(), strongest.reason()));
+            }
+        });
+        groups.sort(Comparator.comparingDouble(DuplicateGroup::score).reversed());
+        return groups;
+    }
+
+    private static void union(Map<Integer, Integer> parent, int a, int b) {
+        int rootA = root(parent, a);
+        int rootB = root(parent, b);
+        if (rootA != rootB) {
+            parent.put(rootA, rootB);
+        }
+    }
+
+    private static int root(Map<Integer, Integer> parent, int id) {
+        int root = id;
+        Integer up;
+        while ((up = parent.putIfAbsent(root, root)) != null && up != root) {
+            root = up;
+        }
+        // path compression
+        int node = id;
+        while (node != root) {
+            int next = parent.get(node);
+            parent.put(node, root);
+            node = next;
+        }
+        return root;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.phonebook.dedup;
+
+import com.example.phonebook.model.Person;
+
+import java.util.List;
+
+/**
+ * Contacts that are (transitively) probable duplicates of each other, with the score
+ * and reason of the strongest pair among them.
+ */
+public record DuplicateGroup(List<Person> contacts, double score, String reason) {
+}
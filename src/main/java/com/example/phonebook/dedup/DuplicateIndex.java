@@ -0,0 +1,133 @@
+package com.example.phonebook.dedup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Blocking index for duplicate detection: blocking key -> ids of the contacts having it
+ * (see DuplicateKeys). Maintained by DataService together with its other indexes.
+ *
+ * Keys are stored as 64-bit hashes and blocks as small copy-on-write int arrays, which keeps
+ * the index compact for large phonebooks. A hash collision only adds a candidate, which the
+ * scorer then rejects, so it cannot produce a false match.
+ *
+ * A block that grows past maxBlock is never scored, so it is replaced by a marker instead of
+ * growing further (and copying ever larger arrays); its key stays ignored until the next
+ * clear() and rebuild.
+ */
+public final class DuplicateIndex {
+
+    private static final int[] EMPTY = new int[0];
+    private static final int[] OVERSIZED = new int[0];
+
+    private final ConcurrentMap<Long, int[]> blocks = new ConcurrentHashMap<>();
+    private final int maxBlock;
+
+    public DuplicateIndex() {
+        this(DuplicateDetector.MAX_BLOCK);
+    }
+
+    public DuplicateIndex(int maxBlock) {
+        this.maxBlock = maxBlock;
+    }
+
+    public void add(int id, String name, String phone, String email, String city) {
+        for (String key : DuplicateKeys.blockingKeys(name, phone, email, city)) {
+            blocks.merge(hash(key), new int[]{id}, this::grow);
+        }
+    }
+
+    public void remove(int id, String name, String phone, String email, String city) {
+        for (String key : DuplicateKeys.blockingKeys(name, phone, email, city)) {
+            blocks.computeIfPresent(hash(key), (k, ids) -> {
+                if (ids == OVERSIZED) {
+                    return ids;
+                }
+                int[] left = without(ids, id);
+                return left.length == 0 ? null : left;
+            });
+        }
+    }
+
+    public void clear() {
+        blocks.clear();
+    }
+
+    /**
+     * Ids sharing at least one block with the given values (may include the contact itself).
+     * Blocks larger than maxBlock are ignored: such a key is too common to say anything.
+     */
+    int[] candidates(String name, String phone, String email, String city, int maxBlock) {
+        int[] result = EMPTY;
+        for (String key : DuplicateKeys.blockingKeys(name, phone, email, city)) {
+            int[] ids = blocks.getOrDefault(hash(key), EMPTY);
+            if (ids != OVERSIZED && ids.length <= maxBlock) {
+                result = union(result, ids);
+            }
+        }
+        return result;
+    }
+
+    // Snapshot of all blocks with at least two contacts, for the full scan (oversized ones are empty)
+    List<int[]> blocksWithPairs() {
+        List<int[]> result = new ArrayList<>();
+        for (int[] ids : blocks.values()) {
+            if (ids.length > 1) {
+                result.add(ids);
+            }
+        }
+        return result;
+    }
+
+    private int[] grow(int[] ids, int[] added) {
+        if (ids == OVERSIZED) {
+            return OVERSIZED;
+        }
+        int[] merged = union(ids, added);
+        return merged.length > maxBlock ? OVERSIZED : merged;
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] merged = Arrays.copyOf(a, a.length + b.length);
+        int n = a.length;
+        for (int id : b) {
+            if (indexOf(merged, n, id) < 0) {
+                merged[n++] = id;
+            }
+        }
+        return n == merged.length ? merged : Arrays.copyOf(merged, n);
+    }
+
+    private static int[] without(int[] ids, int id) {
+        int i = indexOf(ids, ids.length, id);
+        if (i < 0) {
+            return ids;
+        }
+        int[] left = new int[ids.length - 1];
+        System.arraycopy(ids, 0, left, 0, i);
+        System.arraycopy(ids, i + 1, left, i, ids.length - i - 1);
+        return left;
+    }
+
+    private static int indexOf(int[] ids, int length, int id) {
+        for (int i = 0; i < length; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // 64-bit FNV-1a
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.phonebook.dedup;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Normalisation and blocking keys for duplicate detection.
+ *
+ * Two contacts can only be compared if they share a block:
+ *  - the last PHONE_SUFFIX digits of the phone (so "+92 300 1234567" and "0300-1234567" meet),
+ *  - the lower-cased email,
+ *  - the Soundex codes of the name words plus the city (typos like "Muhammad"/"Mohammad").
+ */
+public final class DuplicateKeys {
+
+    static final int PHONE_SUFFIX = 7;
+
+    private DuplicateKeys() {}
+
+    public static List<String> blockingKeys(String name, String phone, String email, String city) {
+        List<String> keys = new ArrayList<>(3);
+        String digits = digits(phone);
+        if (digits.length() >= PHONE_SUFFIX) {
+            keys.add("p:" + digits.substring(digits.length() - PHONE_SUFFIX));
+        }
+        String mail = email(email);
+        if (!mail.isEmpty()) {
+            keys.add("e:" + mail);
+        }
+        String phonetic = phoneticName(name);
+        if (!phonetic.isEmpty()) {
+            keys.add("n:" + phonetic + "|" + (city == null ? "" : city.trim().toLowerCase(Locale.ROOT)));
+        }
+        return keys;
+    }
+
+    static String digits(String phone) {
+        if (phone == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    static String email(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Lower case, accents removed, punctuation dropped and words sorted,
+     * so "Müller, Anna" and "anna muller" normalise to the same text.
+     */
+    static String normalizedName(String name) {
+        if (name == null) {
+            return "";
+        }
+        String[] words = words(name);
+        Arrays.sort(words);
+        return String.join(" ", words);
+    }
+
+    // Soundex of each name word, sorted, so word order and most single-letter typos do not matter
+    static String phoneticName(String name) {
+        if (name == null) {
+            return "";
+        }
+        String[] words = words(name);
+        List<String> codes = new ArrayList<>(words.length);
+        for (String word : words) {
+            String code = soundex(word);
+            if (!code.isEmpty()) {
+                codes.add(code);
+            }
+        }
+        codes.sort(null);
+        return String.join(" ", codes);
+    }
+
+    private static String[] words(String text) {
+        String plain = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", " ")
+                .trim();
+        return plain.isEmpty() ? new String[0] : plain.split(" ");
+    }
+
+    /**
+     * American Soundex (letter + 3 digits) of a lower-case word; "" if it has no a-z letter.
+     */
+    static String soundex(String word) {
+        StringBuilder code = new StringBuilder(4);
+        char last = 0;
+        for (int i = 0; i < word.length() && code.length() < 4; i++) {
+            char c = word.charAt(i);
+            if (c < 'a' || c > 'z') {
+                continue;
+            }
+            char digit = soundexDigit(c);
+            if (code.length() == 0) {
+                code.append(Character.toUpperCase(c));
+            } else if (digit != '0' && digit != last) {
+                code.append(digit);
+            }
+            // h and w do not separate equal codes, vowels do
+            if (c != 'h' && c != 'w') {
+                last = digit;
+            }
+        }
+        if (code.length() == 0) {
+            return "";
+        }
+        while (code.length() < 4) {
+            code.append('0');
+        }
+        return code.toString();
+    }
+
+    private static char soundexDigit(char c) {
+        return switch (c) {
+            case 'b', 'f', 'p', 'v' -> '1';
+            case 'c', 'g', 'j', 'k', 'q', 's', 'x', 'z' -> '2';
+            case 'd', 't' -> '3';
+            case 'l' -> '4';
+            case 'm', 'n' -> '5';
+            case 'r' -> '6';
+            default -> '0';
+        };
+    }
+}
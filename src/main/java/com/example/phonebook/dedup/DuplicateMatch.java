@@ -0,0 +1,10 @@
+package com.example.phonebook.dedup;
+
+import com.example.phonebook.model.Person;
+
+/**
+ * A contact that probably duplicates the one being checked, with the score (0..1)
+ * and a short human-readable reason ("same phone, similar name").
+ */
+public record DuplicateMatch(Person contact, double score, String reason) {
+}
@@ -0,0 +1,153 @@
+package com.example.phonebook.dedup;
+
+import com.example.phonebook.model.Person;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Scores how likely two contacts are the same person, from 0 to 1.
+ *
+ *   0.45 * identity (phone or email: same, or the same with a different prefix/domain or one typo)
+ * + 0.35 * name similarity (Jaro-Winkler on the normalised name)
+ * + 0.20 * location (same street and city, or same city)
+ *
+ * With the default threshold of 0.75 a match needs an identity signal and a similar name;
+ * the same name alone, or the same phone under a different name, is not enough.
+ */
+final class DuplicateScorer {
+
+    static final double DEFAULT_THRESHOLD = 0.75;
+
+    private static final int PHONE_MATCH_DIGITS = 9;
+
+    private DuplicateScorer() {}
+
+    record Score(double value, String reason) {
+    }
+
+    static Score score(Person a, Person b) {
+        List<String> reasons = new ArrayList<>(3);
+
+        double phone = 0;
+        String digitsA = DuplicateKeys.digits(a.getPhone());
+        String digitsB = DuplicateKeys.digits(b.getPhone());
+        if (!digitsA.isEmpty() && digitsA.equals(digitsB)) {
+            phone = 1;
+            reasons.add("same phone");
+        } else if (sameNumber(digitsA, digitsB)) {
+            phone = 1;
+            reasons.add("same phone number with another prefix");
+        } else if (digitsA.length() >= DuplicateKeys.PHONE_SUFFIX && withinOneEdit(digitsA, digitsB)) {
+            phone = 0.7;
+            reasons.add("phone differs by one digit");
+        }
+
+        double email = 0;
+        String mailA = DuplicateKeys.email(a.getEmail());
+        String mailB = DuplicateKeys.email(b.getEmail());
+        if (!mailA.isEmpty() && mailA.equals(mailB)) {
+            email = 1;
+            reasons.add("same email");
+        } else if (!mailA.isEmpty() && localPart(mailA).length() >= 3 && localPart(mailA).equals(localPart(mailB))) {
+            email = 0.7;
+            reasons.add("same email name at another domain");
+        }
+
+        double name = jaroWinkler(DuplicateKeys.normalizedName(a.getName()), DuplicateKeys.normalizedName(b.getName()));
+        if (name >= 0.99) {
+            reasons.add("same name");
+        } else if (name >= 0.85) {
+            reasons.add("similar name");
+        }
+
+        double location = 0;
+        if (sameText(a.getCity(), b.getCity())) {
+            location = sameText(a.getStreet(), b.getStreet()) ? 1 : 0.5;
+            reasons.add(location == 1 ? "same address" : "same city");
+        }
+
+        double value = 0.45 * Math.max(phone, email) + 0.35 * name + 0.20 * location;
+        return new Score(value, String.join(", ", reasons));
+    }
+
+    // The same subscriber number with a different country/trunk prefix, e.g. 923001234567 vs 03001234567
+    private static boolean sameNumber(String a, String b) {
+        int n = Math.min(PHONE_MATCH_DIGITS, Math.min(a.length(), b.length()));
+        return n >= DuplicateKeys.PHONE_SUFFIX && a.regionMatches(a.length() - n, b, b.length() - n, n);
+    }
+
+    private static String localPart(String email) {
+        int at = email.indexOf('@');
+        return at < 0 ? email : email.substring(0, at);
+    }
+
+    private static boolean sameText(String a, String b) {
+        return a != null && b != null && !a.isBlank()
+                && a.trim().toLowerCase(Locale.ROOT).equals(b.trim().toLowerCase(Locale.ROOT));
+    }
+
+    // One substitution, insertion or deletion (a typo); equal strings are not "within one edit" here
+    static boolean withinOneEdit(String a, String b) {
+        if (a.equals(b) || Math.abs(a.length() - b.length()) > 1) {
+            return false;
+        }
+        String shorter = a.length() <= b.length() ? a : b;
+        String longer = a.length() <= b.length() ? b : a;
+        int i = 0;
+        while (i < shorter.length() && shorter.charAt(i) == longer.charAt(i)) {
+            i++;
+        }
+        int skip = shorter.length() == longer.length() ? 1 : 0;
+        return shorter.regionMatches(i + skip, longer, i + 1, shorter.length() - i - skip);
+    }
+
+    static double jaroWinkler(String a, String b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        if (a.equals(b)) {
+            return 1;
+        }
+        int window = Math.max(0, Math.max(a.length(), b.length()) / 2 - 1);
+        boolean[] matchedA = new boolean[a.length()];
+        boolean[] matchedB = new boolean[b.length()];
+        int matches = 0;
+        for (int i = 0; i < a.length(); i++) {
+            int from = Math.max(0, i - window);
+            int to = Math.min(b.length() - 1, i + window);
+            for (int j = from; j <= to; j++) {
+                if (!matchedB[j] && a.charAt(i) == b.charAt(j)) {
+                    matchedA[i] = true;
+                    matchedB[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0;
+        }
+        int transpositions = 0;
+        for (int i = 0, j = 0; i < a.length(); i++) {
+            if (!matchedA[i]) {
+                continue;
+            }
+            while (!matchedB[j]) {
+                j++;
+            }
+            if (a.charAt(i) != b.charAt(j)) {
+                transpositions++;
+            }
+            j++;
+        }
+        double m = matches;
+        double jaro = (m / a.length() + m / b.length() + (m - transpositions / 2.0) / m) / 3;
+        int prefix = 0;
+        while (prefix < Math.min(4, Math.min(a.length(), b.length())) && a.charAt(prefix) == b.charAt(prefix)) {
+            prefix++;
+        }
+        return jaro + prefix * 0.1 * (1 - jaro);
+    }
+}
@@ -0,0 +1,707 @@
+package com.example.phonebook.journal;
+
+import com.example.phonebook.metrics.Counter;
+import com.example.phonebook.metrics.LatencyHistogram;
+import com.example.phonebook.metrics.Metrics;
+import com.example.phonebook.model.Person;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, checksummed, segmented journal of contact mutations.
+ *
+ * Every entry gets the next sequence number. append() only queues the entries for one
+ * writer thread, which writes whatever has queued up in one go (group commit) and then
+ * fsyncs according to the policy:
+ *  - always   (default) awaitDurable(seq) returns once the entries up to seq are on disk;
+ *             callers append under their own lock and wait after releasing it, so
+ *             concurrent writers share one fsync
+ *  - interval the writer fsyncs at most every fsyncMillis; awaitDurable() returns at once
+ *  - never    leave it to the OS
+ *
+ * Segments ("journal-<first seq>.log") roll over at segmentMb. Snapshots of the whole
+ * phonebook are written every snapshotEvery entries, so startup only replays the journal
+ * after the newest snapshot; segments covered by the oldest retained snapshot are then
+ * deleted, so the audit history reaches back to that snapshot. The last TAIL_CAPACITY
+ * entries are also kept in memory for the changes feed.
+ *
+ * A failed write leaves a gap on disk. The journal then refuses further appends and deletes
+ * its snapshots until restart, so no later recovery can replay across the gap; replays also
+ * check that sequence numbers are contiguous and fail on a damaged record.
+ *
+ * Configured with system properties (see fromSystemProperties()).
+ */
+public final class Journal implements Closeable {
+
+    public enum Fsync { ALWAYS, INTERVAL, NEVER }
+
+    /**
+     * All contacts as of journal sequence number seq.
+     */
+    public record Snapshot(long seq, List<Person> contacts) {
+    }
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int TAIL_CAPACITY = 10_000;
+
+    private static final LatencyHistogram APPEND = Metrics.histogram("journal_append");
+    private static final LatencyHistogram FSYNC = Metrics.histogram("journal_fsync");
+    private static final Counter ENTRIES = Metrics.counter("journal_entries");
+    private static final Counter ERRORS = Metrics.counter("journal_errors");
+
+    private final Path dir;
+    private final Fsync fsync;
+    private final long fsyncIntervalNanos;
+    private final long segmentBytes;
+    private final int snapshotEvery;
+    private final boolean recovery;
+    private final SnapshotFiles snapshots;
+
+    // seq assignment, in-memory tail and queue order are kept consistent under appendLock
+    private final Object appendLock = new Object();
+    private long lastSeq;
+    private long entriesSinceSnapshot;
+    private final ArrayDeque<JournalEntry> tail = new ArrayDeque<>();
+
+    private final LinkedBlockingQueue<List<JournalEntry>> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final ExecutorService snapshotWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "journal-snapshot");
+        t.setDaemon(true);
+        return t;
+    });
+    // set under appendLock, so nothing is queued after the writer saw it and drained the queue
+    private volatile boolean closed;
+    // first failed write; appends and snapshots are refused from then on
+    private volatile IOException failure;
+
+    // highest seq written (and synced with fsync=always); waited on by awaitDurable()
+    private final Object durableLock = new Object();
+    private long durableSeq;
+
+    // writer thread only
+    private FileChannel segment;
+    private long segmentSize;
+    private boolean dirty;
+    private long lastForce = System.nanoTime();
+
+    public Journal(Path dir, Fsync fsync, long fsyncMillis, long segmentBytes, int snapshotEvery,
+                   boolean recovery) throws IOException {
+        this.dir = dir;
+        this.fsync = fsync;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncMillis);
+        this.segmentBytes = segmentBytes;
+        this.snapshotEvery = snapshotEvery;
+        this.recovery = recovery;
+        this.snapshots = new SnapshotFiles(dir);
+        Files.createDirectories(dir);
+        recover();
+        durableSeq = lastSeq;
+
+        writer = new Thread(this::writeLoop, "journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Metrics.gauge("journal_last_seq", this::lastSeq);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "journal-shutdown"));
+    }
+
+    /**
+     * The journal of the given database (see Database.identity()) configured by system
+     * properties, or null if disabled or not usable:
+     *   phonebook.journal.enabled        (true)
+     *   phonebook.journal.dir            (~/.phonebook/journal), one subdirectory per database
+     *   phonebook.journal.fsync          always | interval | never (always)
+     *   phonebook.journal.fsyncMillis    for interval (200)
+     *   phonebook.journal.segmentMb      (64)
+     *   phonebook.journal.snapshotEvery  entries between snapshots (50000)
+     *   phonebook.journal.recovery       start from snapshot + journal instead of reading the whole
+     *                                    table (false). Only for a single node with fsync=always:
+     *                                    the journal holds this node's changes only.
+     */
+    public static Journal fromSystemProperties(String database) {
+        if (!Boolean.parseBoolean(System.getProperty("phonebook.journal.enabled", "true"))) {
+            return null;
+        }
+        try {
+            Path base = Paths.get(System.getProperty("phonebook.journal.dir",
+                    Paths.get(System.getProperty("user.home"), ".phonebook", "journal").toString()));
+            Path dir = base.resolve(directoryName(database));
+            Fsync fsync = Fsync.valueOf(System.getProperty("phonebook.journal.fsync", "always").toUpperCase(Locale.ROOT));
+            long fsyncMillis = Long.parseLong(System.getProperty("phonebook.journal.fsyncMillis", "200"));
+            long segmentBytes = Long.parseLong(System.getProperty("phonebook.journal.segmentMb", "64")) << 20;
+            int snapshotEvery = Integer.parseInt(System.getProperty("phonebook.journal.snapshotEvery", "50000"));
+            boolean recovery = Boolean.parseBoolean(System.getProperty("phonebook.journal.recovery", "false"));
+            return new Journal(dir, fsync, fsyncMillis, segmentBytes, snapshotEvery, recovery);
+        } catch (IOException | IllegalArgumentException e) {
+            // the application keeps working without history and fast restart
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // "root@jdbc:mysql://localhost:3306/phonebook_db" -> "root_jdbc_mysql_localhost_3306_phonebook_db-<crc>":
+    // readable, and a different database never shares (and recovers from) another one's journal
+    static String directoryName(String database) {
+        String readable = database.replaceAll("[^A-Za-z0-9._-]+", "_");
+        if (readable.length() > 64) {
+            readable = readable.substring(0, 64);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(database.getBytes(StandardCharsets.UTF_8));
+        return readable + "-" + Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Queues the entries (in order, with consecutive sequence numbers) for the writer and
+     * returns the last sequence number; see awaitDurable(). Throws UncheckedIOException once
+     * a write has failed, IllegalStateException after close().
+     */
+    public long append(List<JournalEntry> entries) {
+        if (entries.isEmpty()) {
+            return lastSeq();
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Journal is disabled after a failed write", failure);
+        }
+        long start = System.nanoTime();
+        long last;
+        synchronized (appendLock) {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            List<JournalEntry> numbered = new ArrayList<>(entries.size());
+            for (JournalEntry entry : entries) {
+                JournalEntry e = entry.withSeq(++lastSeq);
+                numbered.add(e);
+                tail.addLast(e);
+            }
+            while (tail.size() > TAIL_CAPACITY) {
+                tail.removeFirst();
+            }
+            entriesSinceSnapshot += entries.size();
+            last = lastSeq;
+            queue.add(numbered);
+        }
+        ENTRIES.add(entries.size());
+        APPEND.recordSince(start);
+        return last;
+    }
+
+    /**
+     * With fsync=always, blocks until the entries up to seq are on disk; returns at once with
+     * the other policies. Throws UncheckedIOException if they could not be written.
+     */
+    public void awaitDurable(long seq) {
+        if (fsync != Fsync.ALWAYS) {
+            return;
+        }
+        synchronized (durableLock) {
+            while (durableSeq < seq) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Journal write failed", failure);
+                }
+                try {
+                    durableLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for the journal"));
+                }
+            }
+        }
+    }
+
+    public boolean recoveryEnabled() {
+        return recovery;
+    }
+
+    public long lastSeq() {
+        synchronized (appendLock) {
+            return lastSeq;
+        }
+    }
+
+    /**
+     * Sequence number of the oldest entry still available (lastSeq() + 1 if there is none).
+     */
+    public long oldestSeq() throws IOException {
+        List<Long> firsts = segmentSeqs();
+        synchronized (appendLock) {
+            if (!firsts.isEmpty()) {
+                return firsts.get(0);
+            }
+            return tail.isEmpty() ? lastSeq + 1 : tail.peekFirst().seq();
+        }
+    }
+
+    /**
+     * Up to limit entries with seq > since, oldest first. Recent entries come from memory.
+     */
+    public List<JournalEntry> readSince(long since, int limit) throws IOException {
+        synchronized (appendLock) {
+            if (!tail.isEmpty() && tail.peekFirst().seq() <= since + 1) {
+                List<JournalEntry> result = new ArrayList<>(Math.min(limit, tail.size()));
+                for (JournalEntry e : tail) {
+                    if (e.seq() > since) {
+                        result.add(e);
+                        if (result.size() >= limit) {
+                            break;
+                        }
+                    }
+                }
+                return result;
+            }
+        }
+        List<JournalEntry> result = new ArrayList<>();
+        forEachSince(since, e -> {
+            if (result.size() < limit) {
+                result.add(e);
+            }
+        }, limit);
+        // entries written after the scan (or still queued) are in the tail
+        long lastRead = result.isEmpty() ? since : result.get(result.size() - 1).seq();
+        synchronized (appendLock) {
+            for (JournalEntry e : tail) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                if (e.seq() > lastRead) {
+                    result.add(e);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replays the entries on disk with seq > since up to lastSeq(), in order (used at startup,
+     * before any append). Throws IOException, having replayed only part, if a sequence number
+     * is missing or a segment has a damaged record: the caller must not trust the result.
+     */
+    public void forEachSince(long since, Consumer<JournalEntry> action) throws IOException {
+        List<Long> firsts = segmentSeqs();
+        long expected = since + 1;
+        for (int i = 0; i < firsts.size(); i++) {
+            if (i + 1 < firsts.size() && firsts.get(i + 1) <= since + 1) {
+                continue; // every entry of this segment is <= since
+            }
+            Path file = segmentPath(firsts.get(i));
+            long read = 0;
+            try (DataInputStream in = open(file)) {
+                byte[] payload;
+                while ((payload = JournalCodec.readFrame(in)) != null) {
+                    read += JournalCodec.FRAME_HEADER + payload.length;
+                    JournalEntry e = JournalCodec.decode(payload);
+                    if (e.seq() <= since) {
+                        continue;
+                    }
+                    if (e.seq() != expected) {
+                        throw new IOException("Journal gap: expected seq " + expected + ", found " + e.seq() + " in " + file);
+                    }
+                    action.accept(e);
+                    expected++;
+                }
+            }
+            if (read < Files.size(file)) {
+                throw new IOException("Journal segment " + file + " is damaged at byte " + read);
+            }
+        }
+        if (expected <= lastSeq()) {
+            throw new IOException("Journal ends at seq " + (expected - 1) + ", expected " + lastSeq());
+        }
+    }
+
+    // Feed reads: best effort, a damaged segment ends early and a pruned one is skipped
+    private void forEachSince(long since, Consumer<JournalEntry> action, long limit) throws IOException {
+        List<Long> firsts = segmentSeqs();
+        long delivered = 0;
+        for (int i = 0; i < firsts.size() && delivered < limit; i++) {
+            boolean nextStartsAfter = i + 1 < firsts.size() && firsts.get(i + 1) <= since + 1;
+            if (nextStartsAfter) {
+                continue; // every entry of this segment is <= since
+            }
+            try (DataInputStream in = open(segmentPath(firsts.get(i)))) {
+                JournalEntry e;
+                while (delivered < limit && (e = JournalCodec.read(in)) != null) {
+                    if (e.seq() > since) {
+                        action.accept(e);
+                        delivered++;
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                // pruned after a snapshot meanwhile
+            }
+        }
+    }
+
+    /**
+     * Audit history of one contact, newest first (at most limit entries). Scans the segments
+     * from the newest backwards, so recent history is cheap.
+     */
+    public List<JournalEntry> history(int contactId, int limit) throws IOException {
+        List<JournalEntry> result = new ArrayList<>();
+        long oldestInMemory;
+        synchronized (appendLock) {
+            Iterator<JournalEntry> newestFirst = tail.descendingIterator();
+            while (newestFirst.hasNext() && result.size() < limit) {
+                JournalEntry e = newestFirst.next();
+                if (e.contactId() == contactId) {
+                    result.add(e);
+                }
+            }
+            oldestInMemory = tail.isEmpty() ? lastSeq + 1 : tail.peekFirst().seq();
+        }
+        List<Long> firsts = segmentSeqs();
+        for (int i = firsts.size() - 1; i >= 0 && result.size() < limit; i--) {
+            if (firsts.get(i) >= oldestInMemory) {
+                continue; // already seen in memory
+            }
+            List<JournalEntry> inSegment = new ArrayList<>();
+            try (DataInputStream in = open(segmentPath(firsts.get(i)))) {
+                JournalEntry e;
+                while ((e = JournalCodec.read(in)) != null) {
+                    if (e.contactId() == contactId && e.seq() < oldestInMemory) {
+                        inSegment.add(e);
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                break; // pruned after a snapshot meanwhile, and so are all older ones
+            }
+            Collections.reverse(inSegment);
+            for (JournalEntry e : inSegment) {
+                if (result.size() < limit) {
+                    result.add(e);
+                }
+            }
+        }
+        return result;
+    }
+
+    public Optional<Snapshot> latestSnapshot() throws IOException {
+        return snapshots.latest();
+    }
+
+    /**
+     * True once snapshotEvery entries were appended since the last snapshot.
+     */
+    public boolean snapshotDue() {
+        synchronized (appendLock) {
+            return entriesSinceSnapshot >= snapshotEvery;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given contacts as of seq in the background. The caller must
+     * pass a consistent copy (no mutation between reading seq and the contacts).
+     */
+    public void snapshot(long seq, List<Person> contacts) {
+        if (failure != null) {
+            return; // the journal has a gap: a snapshot would let a recovery replay across it
+        }
+        synchronized (appendLock) {
+            entriesSinceSnapshot = lastSeq - seq;
+        }
+        snapshotWriter.execute(() -> {
+            try {
+                if (failure != null) {
+                    return;
+                }
+                snapshots.write(seq, contacts);
+                if (failure != null) {
+                    snapshots.deleteAll(); // a write failed meanwhile, see fail()
+                    return;
+                }
+                prune();
+            } catch (IOException e) {
+                ERRORS.inc();
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // Segments whose entries are all covered by the oldest retained snapshot are not needed for
+    // a recovery any more (not even from the older snapshot, if the newest turns out corrupt).
+    // Never the last segment, which the writer appends to.
+    private void prune() throws IOException {
+        List<Long> snapshotSeqs = snapshots.seqs();
+        if (snapshotSeqs.isEmpty()) {
+            return;
+        }
+        long covered = snapshotSeqs.get(0);
+        List<Long> firsts = segmentSeqs();
+        for (int i = 0; i + 1 < firsts.size() && firsts.get(i + 1) <= covered + 1; i++) {
+            Files.deleteIfExists(segmentPath(firsts.get(i)));
+        }
+    }
+
+    /**
+     * Writes and syncs everything queued so far and stops the writer.
+     */
+    @Override
+    public void close() {
+        synchronized (appendLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+            snapshotWriter.shutdown();
+            snapshotWriter.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Opening: find the last sequence number and cut off a torn record at the end of the last
+    // segment. A damaged record followed by valid ones is not a torn write: the later records
+    // were committed, so they are kept (replays across the damage fail) and appends continue
+    // in a new segment.
+    private void recover() throws IOException {
+        List<Long> firsts = segmentSeqs();
+        long snapshotSeq = snapshots.seqs().stream().mapToLong(Long::longValue).max().orElse(0L);
+        if (firsts.isEmpty()) {
+            lastSeq = snapshotSeq;
+            return;
+        }
+        Path last = segmentPath(firsts.get(firsts.size() - 1));
+        long size = Files.size(last);
+        lastSeq = firsts.get(firsts.size() - 1) - 1;
+        long position = 0;
+        boolean damaged = false;
+        while ((position = readTail(last, position)) < size) {
+            long next = nextValidFrame(last, position);
+            if (next < 0) {
+                try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+                    channel.truncate(position);
+                    channel.force(true);
+                }
+                break;
+            }
+            ERRORS.inc();
+            System.err.println("Journal segment " + last + " is damaged between bytes " + position + " and " + next);
+            damaged = true;
+            position = next;
+        }
+        if (snapshotSeq > lastSeq) {
+            // the snapshot is newer than the journal (entries lost with fsync=interval/never):
+            // continue after it, so no new entry reuses a sequence number it already covers
+            lastSeq = snapshotSeq;
+            damaged = true;
+        }
+        if (!damaged && position < segmentBytes) {
+            segment = FileChannel.open(last, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            segmentSize = position;
+        }
+    }
+
+    // Reads the valid records from position on into the tail; returns the end of the last one
+    private long readTail(Path file, long position) throws IOException {
+        try (DataInputStream in = open(file)) {
+            in.skipNBytes(position);
+            byte[] payload;
+            while ((payload = JournalCodec.readFrame(in)) != null) {
+                JournalEntry e = JournalCodec.decode(payload);
+                position += JournalCodec.FRAME_HEADER + payload.length;
+                lastSeq = e.seq();
+                tail.addLast(e);
+                if (tail.size() > TAIL_CAPACITY) {
+                    tail.removeFirst();
+                }
+            }
+        }
+        return position;
+    }
+
+    // Start of the first valid record after the damaged one at position with a later seq, or -1
+    private long nextValidFrame(Path file, long position) throws IOException {
+        byte[] rest;
+        try (InputStream in = Files.newInputStream(file)) {
+            in.skipNBytes(position);
+            rest = in.readAllBytes();
+        }
+        for (int offset = 1; offset + JournalCodec.FRAME_HEADER < rest.length; offset++) {
+            byte[] payload = JournalCodec.frameAt(rest, offset);
+            if (payload != null) {
+                try {
+                    if (JournalCodec.decode(payload).seq() > lastSeq) {
+                        return position + offset;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // checksum matched by chance
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void writeLoop() {
+        while (!closed || !queue.isEmpty()) {
+            try {
+                List<JournalEntry> first = queue.poll(fsync == Fsync.INTERVAL ? fsyncIntervalNanos : 100_000_000L,
+                        TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    if (dirty && fsync == Fsync.INTERVAL) {
+                        try {
+                            force();
+                        } catch (IOException e) {
+                            ERRORS.inc();
+                            e.printStackTrace();
+                        }
+                    }
+                    continue;
+                }
+                List<List<JournalEntry>> batch = new ArrayList<>();
+                batch.add(first);
+                queue.drainTo(batch);
+                if (failure != null) {
+                    continue; // refused: waiting appends see the failure
+                }
+                try {
+                    write(batch);
+                    if (fsync == Fsync.ALWAYS
+                            || (fsync == Fsync.INTERVAL && System.nanoTime() - lastForce >= fsyncIntervalNanos)) {
+                        force();
+                    }
+                    List<JournalEntry> last = batch.get(batch.size() - 1);
+                    synchronized (durableLock) {
+                        durableSeq = last.get(last.size() - 1).seq();
+                        durableLock.notifyAll();
+                    }
+                } catch (IOException e) {
+                    ERRORS.inc();
+                    e.printStackTrace();
+                    fail(e);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        try {
+            if (dirty && fsync != Fsync.NEVER) {
+                force();
+            }
+            if (segment != null) {
+                segment.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // The batch's entries already have sequence numbers (and are in the tail), but are not
+    // (completely) on disk. Poison the journal: later appends are refused, and the snapshots are
+    // deleted, so the next start reloads the cache from the database instead of replaying
+    // across the gap.
+    private void fail(IOException e) {
+        failure = e;
+        try {
+            snapshots.deleteAll();
+        } catch (IOException deleteFailed) {
+            deleteFailed.printStackTrace();
+        }
+        synchronized (durableLock) {
+            durableLock.notifyAll(); // waiting appends see the failure
+        }
+    }
+
+    private void write(List<List<JournalEntry>> batch) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+        for (List<JournalEntry> entries : batch) {
+            for (JournalEntry entry : entries) {
+                byte[] frame = JournalCodec.frame(entry);
+                long used = segmentSize + buffer.size();
+                if (segment == null || (used > 0 && used + frame.length > segmentBytes)) {
+                    flush(buffer);
+                    roll(entry.seq());
+                }
+                buffer.write(frame, 0, frame.length);
+            }
+        }
+        flush(buffer);
+    }
+
+    private void flush(ByteArrayOutputStream buffer) throws IOException {
+        if (buffer.size() == 0) {
+            return;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        while (bytes.hasRemaining()) {
+            segment.write(bytes);
+        }
+        segmentSize += buffer.size();
+        buffer.reset();
+        dirty = true;
+    }
+
+    private void roll(long firstSeq) throws IOException {
+        if (segment != null) {
+            if (dirty && fsync != Fsync.NEVER) {
+                force();
+            }
+            segment.close();
+        }
+        segment = FileChannel.open(segmentPath(firstSeq),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentSize = 0;
+    }
+
+    private void force() throws IOException {
+        long start = System.nanoTime();
+        segment.force(false);
+        FSYNC.recordSince(start);
+        dirty = false;
+        lastForce = System.nanoTime();
+    }
+
+    private List<Long> segmentSeqs() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(f -> f.getFileName().toString())
+                    .filter(n -> n.startsWith(SEGMENT_PREFIX) && n.endsWith(SEGMENT_SUFFIX))
+                    .map(n -> Long.parseLong(n.substring(SEGMENT_PREFIX.length(), n.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // zero-padded, so the files also sort by name
+    private Path segmentPath(long firstSeq) {
+        return dir.resolve(String.format(Locale.ROOT, "%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+    }
+
+    private static DataInputStream open(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        return new DataInputStream(new BufferedInputStream(in, 1 << 16));
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.phonebook.journal;
+
+import com.example.phonebook.model.Person;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.CRC32;
+
+/**
+ * Binary layout of journal records and snapshot contacts.
+ *
+ * A record on disk is a frame: payload length (int), CRC32 of the payload (int), payload.
+ * The payload is seq, timestamp, type, contact id and the before/after images.
+ */
+final class JournalCodec {
+
+    static final int FRAME_HEADER = 8;
+
+    private JournalCodec() {}
+
+    static byte[] frame(JournalEntry entry) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0); // length and CRC, filled in below
+            out.writeInt(0);
+            out.writeLong(entry.seq());
+            out.writeLong(entry.timestamp());
+            out.writeByte(entry.type().ordinal());
+            out.writeInt(entry.contactId());
+            writePerson(out, entry.before());
+            writePerson(out, entry.after());
+            byte[] frame = bytes.toByteArray();
+            int length = frame.length - FRAME_HEADER;
+            CRC32 crc = new CRC32();
+            crc.update(frame, FRAME_HEADER, length);
+            putInt(frame, 0, length);
+            putInt(frame, 4, (int) crc.getValue());
+            return frame;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cannot happen with a byte array
+        }
+    }
+
+    /**
+     * Next record of the stream, or null at the end or at a torn/corrupt record
+     * (an interrupted write at the end of the last segment).
+     */
+    static JournalEntry read(DataInputStream in) throws IOException {
+        byte[] payload = readFrame(in);
+        return payload == null ? null : decode(payload);
+    }
+
+    static JournalEntry decode(byte[] payload) throws IOException {
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload));
+        long seq = data.readLong();
+        long timestamp = data.readLong();
+        JournalEntry.Type type = JournalEntry.Type.values()[data.readByte()];
+        int contactId = data.readInt();
+        Person before = readPerson(data);
+        Person after = readPerson(data);
+        return new JournalEntry(seq, timestamp, type, contactId, before, after);
+    }
+
+    // Payload of the next frame, or null if the stream ends or the frame is incomplete or fails its CRC
+    static byte[] readFrame(InputStream in) throws IOException {
+        DataInputStream data = in instanceof DataInputStream d ? d : new DataInputStream(in);
+        int length;
+        try {
+            length = data.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length <= 0 || length > (1 << 24)) {
+            return null;
+        }
+        try {
+            int expected = data.readInt();
+            byte[] payload = new byte[length];
+            data.readFully(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return (int) crc.getValue() == expected ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    // Payload of a complete frame with a valid CRC at offset of bytes, else null (nothing is
+    // allocated for an implausible length, so a scan over damaged bytes stays cheap)
+    static byte[] frameAt(byte[] bytes, int offset) {
+        if (offset + FRAME_HEADER > bytes.length) {
+            return null;
+        }
+        int length = getInt(bytes, offset);
+        if (length <= 0 || length > (1 << 24) || length > bytes.length - offset - FRAME_HEADER) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset + FRAME_HEADER, length);
+        if ((int) crc.getValue() != getInt(bytes, offset + 4)) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        System.arraycopy(bytes, offset + FRAME_HEADER, payload, 0, length);
+        return payload;
+    }
+
+    static void writePerson(DataOutput out, Person p) throws IOException {
+        out.writeBoolean(p != null);
+        if (p == null) {
+            return;
+        }
+        out.writeInt(p.getId() == null ? -1 : p.getId());
+        writeString(out, p.getName());
+        writeString(out, p.getPhone());
+        writeString(out, p.getEmail());
+        writeString(out, p.getCountry());
+        writeString(out, p.getCity());
+        writeString(out, p.getStreet());
+    }
+
+    static Person readPerson(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        int id = in.readInt();
+        return new Person(id < 0 ? null : id, readString(in), readString(in), readString(in),
+                readString(in), readString(in), readString(in));
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static int getInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16
+                | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+}
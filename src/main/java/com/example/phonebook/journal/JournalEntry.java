@@ -0,0 +1,30 @@
+package com.example.phonebook.journal;
+
+import com.example.phonebook.model.Person;
+
+/**
+ * One contact mutation in the journal: sequence number, time (epoch millis), kind,
+ * and the contact before and after (before is null for INSERT, after is null for DELETE).
+ */
+public record JournalEntry(long seq, long timestamp, Type type, int contactId, Person before, Person after) {
+
+    public enum Type { INSERT, UPDATE, DELETE }
+
+    // seq is assigned by Journal.append; the images are copied so later edits of the objects do not leak in
+    public static JournalEntry insert(Person after) {
+        return new JournalEntry(0, System.currentTimeMillis(), Type.INSERT, after.getId(), null, new Person(after));
+    }
+
+    public static JournalEntry update(Person before, Person after) {
+        return new JournalEntry(0, System.currentTimeMillis(), Type.UPDATE, after.getId(),
+                before == null ? null : new Person(before), new Person(after));
+    }
+
+    public static JournalEntry delete(Person before) {
+        return new JournalEntry(0, System.currentTimeMillis(), Type.DELETE, before.getId(), new Person(before), null);
+    }
+
+    JournalEntry withSeq(long seq) {
+        return new JournalEntry(seq, timestamp, type, contactId, before, after);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.phonebook.journal;
+
+import com.example.phonebook.model.Person;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Snapshot files "snapshot-<seq>.snap": all contacts as of journal sequence number seq,
+ * followed by a CRC32 of everything before it. Written to a temp file and renamed, so a
+ * crash never leaves a half-written snapshot under the final name. The two newest are kept.
+ * Journal.fail() deletes them all when the journal got a gap.
+ */
+final class SnapshotFiles {
+
+    private static final int MAGIC = 0x50425331; // "PBS1"
+    private static final int KEEP = 2;
+
+    private final Path dir;
+
+    SnapshotFiles(Path dir) {
+        this.dir = dir;
+    }
+
+    void write(long seq, List<Person> contacts) throws IOException {
+        Path tmp = dir.resolve("snapshot-" + seq + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream file = Files.newOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeLong(seq);
+            out.writeInt(contacts.size());
+            for (Person p : contacts) {
+                JournalCodec.writePerson(out, p);
+            }
+            out.flush();
+            file.write(intBytes((int) crc.getValue())); // the trailer itself is not checksummed
+        }
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tmp, dir.resolve(name(seq)), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        List<Long> seqs = seqs();
+        for (int i = 0; i < seqs.size() - KEEP; i++) {
+            Files.deleteIfExists(dir.resolve(name(seqs.get(i))));
+        }
+    }
+
+    /**
+     * The newest snapshot that reads back completely with a valid checksum.
+     */
+    Optional<Journal.Snapshot> latest() throws IOException {
+        List<Long> seqs = seqs();
+        for (int i = seqs.size() - 1; i >= 0; i--) {
+            Optional<Journal.Snapshot> snapshot = read(dir.resolve(name(seqs.get(i))));
+            if (snapshot.isPresent()) {
+                return snapshot;
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Optional<Journal.Snapshot> read(Path file) {
+        CRC32 crc = new CRC32();
+        try (InputStream raw = Files.newInputStream(file);
+             CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(raw, 1 << 16), crc)) {
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC) {
+                return Optional.empty();
+            }
+            long seq = in.readLong();
+            int count = in.readInt();
+            if (count < 0) {
+                return Optional.empty();
+            }
+            List<Person> contacts = new ArrayList<>(Math.min(count, 1 << 20));
+            for (int i = 0; i < count; i++) {
+                contacts.add(JournalCodec.readPerson(in));
+            }
+            int expected = (int) crc.getValue(); // before reading the trailer
+            int stored = in.readInt();
+            return stored == expected ? Optional.of(new Journal.Snapshot(seq, contacts)) : Optional.empty();
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace(); // corrupt or truncated: try an older one
+            return Optional.empty();
+        }
+    }
+
+    void deleteAll() throws IOException {
+        for (long seq : seqs()) {
+            Files.deleteIfExists(dir.resolve(name(seq)));
+        }
+    }
+
+    // Sequence numbers of the snapshot files present, oldest first
+    List<Long> seqs() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(f -> f.getFileName().toString())
+                    .filter(n -> n.startsWith("snapshot-") && n.endsWith(".snap"))
+                    .map(n -> Long.parseLong(n.substring("snapshot-".length(), n.length() - ".snap".length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static String name(long seq) {
+        return "snapshot-" + seq + ".snap";
+    }
+
+    private static byte[] intBytes(int value) {
+        return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+}
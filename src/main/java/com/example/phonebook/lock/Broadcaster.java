@@ -1,9 +1,14 @@
 package com.example.phonebook.lock;
 
+import com.example.phonebook.metrics.Counter;
+import com.example.phonebook.metrics.LatencyHistogram;
+import com.example.phonebook.metrics.Metrics;
+
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
@@ -13,12 +18,24 @@ import java.util.function.Consumer;
 public final class Broadcaster {
 
     private static final Set<Consumer<String>> listeners = new CopyOnWriteArraySet<>();
-    private static final Executor executor = Executors.newSingleThreadExecutor(r -> {
+    // single thread executor, kept as ThreadPoolExecutor so the queue depth can be observed
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1,
+            0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
         Thread t = new Thread(r, "broadcaster-executor");
         t.setDaemon(true);
         return t;
     });
 
+    // time from broadcast() until a listener has handled the message
+    private static final LatencyHistogram DELIVERY = Metrics.histogram("broadcast_delivery");
+    private static final Counter MESSAGES = Metrics.counter("broadcast_messages");
+    private static final Counter FAILURES = Metrics.counter("broadcast_listener_errors");
+
+    static {
+        Metrics.gauge("broadcast_queue_depth", () -> executor.getQueue().size());
+        Metrics.gauge("broadcast_listeners", listeners::size);
+    }
+
     private Broadcaster() {}
 
     public static void register(Consumer<String> listener) {
@@ -34,12 +51,17 @@ public final class Broadcaster {
      * The message format is up to the caller (we use "LOCK:<id>:<sessionId>:<meta>" and "UNLOCK:<id>:<sessionId>").
      */
     public static void broadcast(String message) {
+        MESSAGES.inc();
+        long sent = System.nanoTime();
         for (Consumer<String> l : listeners) {
             executor.execute(() -> {
                 try {
                     l.accept(message);
                 } catch (Throwable t) {
+                    FAILURES.inc();
                     t.printStackTrace();
+                } finally {
+                    DELIVERY.recordSince(sent);
                 }
             });
         }
@@ -1,5 +1,8 @@
 package com.example.phonebook.lock;
 
+import com.example.phonebook.metrics.Counter;
+import com.example.phonebook.metrics.Metrics;
+
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Optional;
@@ -20,6 +23,14 @@ public final class LockRegistry {
 
     private static final ConcurrentMap<Integer, String> openEditors = new ConcurrentHashMap<>();
 
+    private static final Counter ACQUIRED = Metrics.counter("lock_acquire_success");
+    private static final Counter CONFLICTS = Metrics.counter("lock_acquire_conflict");
+    private static final Counter RELEASED = Metrics.counter("lock_release");
+
+    static {
+        Metrics.gauge("lock_held", openEditors::size);
+    }
+
     private LockRegistry() {}
 
     /**
@@ -34,8 +45,10 @@ public final class LockRegistry {
             // broadcast lock to other UIs
             String safeMeta = meta == null ? "" : URLEncoder.encode(meta, StandardCharsets.UTF_8);
             Broadcaster.broadcast("LOCK:" + recordId + ":" + sessionId + ":" + safeMeta);
+            ACQUIRED.inc();
             return true;
         }
+        CONFLICTS.inc();
         return false;
     }
 
@@ -47,6 +60,7 @@ public final class LockRegistry {
         boolean removed = openEditors.remove(recordId, sessionId);
         if (removed) {
             Broadcaster.broadcast("UNLOCK:" + recordId + ":" + sessionId);
+            RELEASED.inc();
         }
         return removed;
     }
@@ -66,5 +80,13 @@ public final class LockRegistry {
     public static Optional<String> getHolderSessionId(int recordId) {
         return Optional.ofNullable(openEditors.get(recordId));
     }
+
+    /**
+     * True if the record is currently being edited by a session other than the given one.
+     */
+    public static boolean isLockedByOther(int recordId, String sessionId) {
+        String holder = openEditors.get(recordId);
+        return holder != null && !holder.equals(sessionId);
+    }
 }
 
@@ -0,0 +1,109 @@
+package com.example.phonebook.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Central in-JVM metrics registry (counters, latency histograms, gauges).
+ *
+ * Metric names are Prometheus style (lower case, underscores) without the "phonebook_" prefix,
+ * e.g. "repository_find_all" or "lock_acquire_conflict". Hot paths look a metric up once
+ * and keep it in a static field; recording is then lock-free.
+ *
+ * Exposed as Prometheus text by MetricsServlet (/metrics) and over JMX as
+ * com.example.phonebook:type=Metrics (registered by MetricsListener while the webapp runs).
+ */
+public final class Metrics {
+
+    static final String JMX_NAME = "com.example.phonebook:type=Metrics";
+
+    private static final String PREFIX = "phonebook_";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private static final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private Metrics() {}
+
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    /**
+     * Registers (or replaces) a gauge that is sampled whenever metrics are read.
+     */
+    public static void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    static Map<String, Long> counterValues() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.get()));
+        return values;
+    }
+
+    static Map<String, Long> gaugeValues() {
+        Map<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    static Map<String, LatencyHistogram> histograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format (version 0.0.4).
+     * Histograms are exposed as summaries in seconds.
+     */
+    public static void writePrometheus(Writer out) throws IOException {
+        for (Map.Entry<String, Long> e : counterValues().entrySet()) {
+            String name = PREFIX + e.getKey() + "_total";
+            out.write("# TYPE " + name + " counter\n");
+            out.write(name + " " + e.getValue() + "\n");
+        }
+        for (Map.Entry<String, Long> e : gaugeValues().entrySet()) {
+            String name = PREFIX + e.getKey();
+            out.write("# TYPE " + name + " gauge\n");
+            out.write(name + " " + e.getValue() + "\n");
+        }
+        for (Map.Entry<String, LatencyHistogram> e : histograms().entrySet()) {
+            String name = PREFIX + e.getKey() + "_seconds";
+            LatencyHistogram h = e.getValue();
+            out.write("# TYPE " + name + " summary\n");
+            for (double q : QUANTILES) {
+                out.write(name + "{quantile=\"" + q + "\"} " + seconds(h.percentile(q)) + "\n");
+            }
+            out.write(name + "_sum " + seconds(h.sumNanos()) + "\n");
+            out.write(name + "_count " + h.count() + "\n");
+            out.write(PREFIX + e.getKey() + "_max_seconds " + seconds(h.maxNanos()) + "\n");
+        }
+    }
+
+    public static String prometheusText() {
+        StringWriter out = new StringWriter();
+        try {
+            writePrometheus(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cannot happen with a StringWriter
+        }
+        return out.toString();
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.phonebook.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * MXBean implementation registered by MetricsListener.
+ */
+class MetricsJmx implements MetricsMXBean {
+
+    @Override
+    public Map<String, Long> getCounters() {
+        return Metrics.counterValues();
+    }
+
+    @Override
+    public Map<String, Long> getGauges() {
+        return Metrics.gaugeValues();
+    }
+
+    @Override
+    public Map<String, Long> getLatencyCounts() {
+        Map<String, Long> values = new TreeMap<>();
+        Metrics.histograms().forEach((name, h) -> values.put(name, h.count()));
+        return values;
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP50Millis() {
+        return millis(h -> h.percentile(0.5));
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP99Millis() {
+        return millis(h -> h.percentile(0.99));
+    }
+
+    @Override
+    public Map<String, Double> getLatencyMaxMillis() {
+        return millis(LatencyHistogram::maxNanos);
+    }
+
+    @Override
+    public String getPrometheusText() {
+        return Metrics.prometheusText();
+    }
+
+    @Override
+    public void resetLatencies() {
+        Metrics.histograms().values().forEach(LatencyHistogram::reset);
+    }
+
+    private static Map<String, Double> millis(ToDoubleFunction<LatencyHistogram> nanos) {
+        Map<String, Double> values = new TreeMap<>();
+        Metrics.histograms().forEach((name, h) -> values.put(name, nanos.applyAsDouble(h) / 1e6));
+        return values;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.phonebook.metrics;
+
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+import java.lang.management.ManagementFactory;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registers the metrics MXBean (Metrics.JMX_NAME) when the web application starts and
+ * unregisters it when it stops, so a redeployed application shows its own metrics and the
+ * old bean does not keep the old classloader alive.
+ */
+@WebListener
+public class MetricsListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(Metrics.JMX_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name); // left behind by a deployment that was not stopped cleanly
+            }
+            server.registerMBean(new MetricsJmx(), name);
+        } catch (JMException e) {
+            // metrics still work, only not over JMX
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(Metrics.JMX_NAME));
+        } catch (InstanceNotFoundException e) {
+            // registration had failed
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.phonebook.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the metrics registry (com.example.phonebook:type=Metrics).
+ */
+public interface MetricsMXBean {
+
+    Map<String, Long> getCounters();
+
+    Map<String, Long> getGauges();
+
+    Map<String, Long> getLatencyCounts();
+
+    Map<String, Double> getLatencyP50Millis();
+
+    Map<String, Double> getLatencyP99Millis();
+
+    Map<String, Double> getLatencyMaxMillis();
+
+    String getPrometheusText();
+
+    /**
+     * Clears all histograms (counters are monotonic and are not reset).
+     */
+    void resetLatencies();
+}
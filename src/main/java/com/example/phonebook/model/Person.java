@@ -33,7 +33,6 @@ public class Person implements Serializable {
     public static final Comparator<Person> NAME_COMPARATOR =
             Comparator.comparing(Person::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
 
-
     public Person() {
     }
 
@@ -49,6 +48,12 @@ public class Person implements Serializable {
         this.street = street;
     }
 
+    // Copy constructor, used by caches that must not share instances with the UI
+    public Person(Person other) {
+        this(other.id, other.name, other.phone, other.email,
+                other.country, other.city, other.street);
+    }
+
 
 
     /* ------------------------ Getters & Setters ------------------------ */
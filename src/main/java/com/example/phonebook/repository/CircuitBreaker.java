@@ -0,0 +1,95 @@
+package com.example.phonebook.repository;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Consecutive-failure circuit breaker.
+ *
+ *  CLOSED    calls go through; failureThreshold failures in a row open the circuit
+ *  OPEN      calls are rejected at once for openMillis
+ *  HALF_OPEN one trial call goes through (the others are still rejected);
+ *            success closes the circuit, failure opens it again
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final Consumer<State> onStateChange;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private boolean trialRunning;
+
+    public CircuitBreaker(int failureThreshold, long openMillis, Consumer<State> onStateChange) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.onStateChange = onStateChange;
+    }
+
+    /**
+     * True if a call may go through now. Every permitted call must be followed by
+     * onSuccess() or onFailure().
+     */
+    public boolean tryAcquire() {
+        State changed;
+        synchronized (this) {
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (System.nanoTime() - openedAt < openNanos) {
+                        return false;
+                    }
+                    state = State.HALF_OPEN;
+                    trialRunning = true;
+                    changed = state;
+                    break;
+                default: // HALF_OPEN
+                    if (trialRunning) {
+                        return false;
+                    }
+                    trialRunning = true;
+                    return true;
+            }
+        }
+        onStateChange.accept(changed);
+        return true;
+    }
+
+    public void onSuccess() {
+        boolean closed;
+        synchronized (this) {
+            failures = 0;
+            trialRunning = false;
+            closed = state != State.CLOSED;
+            state = State.CLOSED;
+        }
+        if (closed) {
+            onStateChange.accept(State.CLOSED);
+        }
+    }
+
+    public void onFailure() {
+        boolean opened;
+        synchronized (this) {
+            failures++;
+            trialRunning = false;
+            opened = state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold);
+            if (opened) {
+                state = State.OPEN;
+                openedAt = System.nanoTime();
+            }
+        }
+        if (opened) {
+            onStateChange.accept(State.OPEN);
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+}
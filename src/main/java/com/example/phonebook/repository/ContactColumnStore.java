@@ -0,0 +1,702 @@
+package com.example.phonebook.repository;
+
+import com.example.phonebook.model.Person;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Compact column-oriented contact cache.
+ *
+ * Instead of one Person object (plus 6 Strings) per contact it keeps:
+ *  - ids in a primitive int column, with a primitive id -> row hash map
+ *  - country and city as int codes into a dictionary (each distinct value stored once)
+ *  - name, phone, email and street as packed UTF-8 bytes in one buffer,
+ *    optionally off-heap (-Dphonebook.store.offHeap=true)
+ *
+ * Person objects are only created on demand (get / view), e.g. for the rows of a grid page.
+ * Filters on country/city are evaluated once per distinct value and then
+ * applied to the code columns.
+ *
+ * Thread-safe: reads take the read lock, mutations the write lock.
+ */
+public class ContactColumnStore {
+
+    private static final int INITIAL_ROWS = 1024;
+    private static final int INITIAL_TEXT_BYTES = 64 * 1024;
+    private static final int NULL_CODE = -1;
+
+    // packed text fields per row
+    private static final int TEXT_FIELDS = 4;
+    private static final int F_NAME = 0;
+    private static final int F_PHONE = 1;
+    private static final int F_EMAIL = 2;
+    private static final int F_STREET = 3;
+
+    private final boolean offHeap;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int[] ids = new int[INITIAL_ROWS];
+    private int[] countryCodes = new int[INITIAL_ROWS];
+    private int[] cityCodes = new int[INITIAL_ROWS];
+    private int[] textOffsets = new int[INITIAL_ROWS * TEXT_FIELDS];
+    private int[] textLengths = new int[INITIAL_ROWS * TEXT_FIELDS]; // -1 = null
+    private final BitSet liveRows = new BitSet();
+    private int rowLimit;          // rows [0, rowLimit) have been used
+    private int[] freeRows = new int[16];
+    private int freeCount;
+
+    private ByteBuffer text;
+    private int textEnd;
+    private int garbageBytes;      // bytes of replaced/deleted values, reclaimed by compactText()
+
+    private final IntIntMap rowsById = new IntIntMap();
+    private final Dictionary countries = new Dictionary();
+    private final Dictionary cities = new Dictionary();
+
+    public ContactColumnStore() {
+        this(Boolean.getBoolean("phonebook.store.offHeap"));
+    }
+
+    public ContactColumnStore(boolean offHeap) {
+        this.offHeap = offHeap;
+        this.text = allocate(INITIAL_TEXT_BYTES);
+    }
+
+    /* ------------------------ Mutations ------------------------ */
+
+    /**
+     * Insert or replace the contact with the same id. Contacts without id are ignored.
+     */
+    public void put(Person p) {
+        if (p.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int row = rowsById.get(p.getId());
+            if (row < 0) {
+                row = allocateRow();
+                rowsById.put(p.getId(), row);
+                liveRows.set(row);
+            } else {
+                releaseText(row);
+            }
+            ids[row] = p.getId();
+            countryCodes[row] = countries.encode(p.getCountry());
+            cityCodes[row] = cities.encode(p.getCity());
+            writeText(row, F_NAME, p.getName());
+            writeText(row, F_PHONE, p.getPhone());
+            writeText(row, F_EMAIL, p.getEmail());
+            writeText(row, F_STREET, p.getStreet());
+
+            if (garbageBytes > INITIAL_TEXT_BYTES && garbageBytes > textEnd / 2) {
+                compactText();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(int id) {
+        lock.writeLock().lock();
+        try {
+            int row = rowsById.remove(id);
+            if (row < 0) {
+                return false;
+            }
+            releaseText(row);
+            liveRows.clear(row);
+            if (freeCount == freeRows.length) {
+                freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+            }
+            freeRows[freeCount++] = row;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            rowsById.clear();
+            liveRows.clear();
+            rowLimit = 0;
+            freeCount = 0;
+            textEnd = 0;
+            garbageBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /* ------------------------ Reads ------------------------ */
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rowsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(int id) {
+        lock.readLock().lock();
+        try {
+            return rowsById.get(id) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A new Person built from the stored columns, or null if the id is unknown.
+     */
+    public Person get(int id) {
+        lock.readLock().lock();
+        try {
+            int row = rowsById.get(id);
+            return row < 0 ? null : view(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Like get(), but only if the row matches the filter (checked column by column
+     * before anything is decoded into a Person).
+     */
+    public Person getIfMatches(int id, Filter filter) {
+        lock.readLock().lock();
+        try {
+            int row = rowsById.get(id);
+            return row < 0 || !filter.test(row) ? null : view(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String name(int id) {
+        return textOf(id, F_NAME);
+    }
+
+    public String phone(int id) {
+        return textOf(id, F_PHONE);
+    }
+
+    public String email(int id) {
+        return textOf(id, F_EMAIL);
+    }
+
+    /**
+     * Country of the contact; the returned String is the shared dictionary instance.
+     */
+    public String country(int id) {
+        lock.readLock().lock();
+        try {
+            int row = rowsById.get(id);
+            return row < 0 ? null : countries.decode(countryCodes[row]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * City of the contact; the returned String is the shared dictionary instance.
+     */
+    public String city(int id) {
+        lock.readLock().lock();
+        try {
+            int row = rowsById.get(id);
+            return row < 0 ? null : cities.decode(cityCodes[row]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * True if the contact exists and matches the filter; nothing is decoded into a Person.
+     */
+    public boolean matches(int id, Filter filter) {
+        lock.readLock().lock();
+        try {
+            int row = rowsById.get(id);
+            return row >= 0 && filter.test(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Compares the names of two contacts like String.CASE_INSENSITIVE_ORDER (nulls and
+     * unknown ids last), directly on the UTF-8 bytes for ASCII text, so sorted indexes can
+     * be maintained without decoding Strings on every comparison.
+     */
+    public int compareNames(int idA, int idB) {
+        lock.readLock().lock();
+        try {
+            return compareText(rowsById.get(idA), rowsById.get(idB), F_NAME);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Compares countries case-insensitively (nulls and unknown ids last) via the dictionary.
+     */
+    public int compareCountries(int idA, int idB) {
+        lock.readLock().lock();
+        try {
+            return compareCodes(countries, codeOf(countryCodes, idA), codeOf(countryCodes, idB));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Compares cities case-insensitively (nulls and unknown ids last) via the dictionary.
+     */
+    public int compareCities(int idA, int idB) {
+        lock.readLock().lock();
+        try {
+            return compareCodes(cities, codeOf(cityCodes, idA), codeOf(cityCodes, idB));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of live rows matching the filter, as a scan over the columns.
+     */
+    public long count(Filter filter) {
+        lock.readLock().lock();
+        try {
+            long count = 0;
+            for (int row = liveRows.nextSetBit(0); row >= 0; row = liveRows.nextSetBit(row + 1)) {
+                if (filter.test(row)) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of matching rows per country (facet counts), from a scan of the code column.
+     */
+    public Map<String, Long> countByCountry(Filter filter) {
+        lock.readLock().lock();
+        try {
+            return countByCode(countryCodes, countries, filter);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of matching rows per city (facet counts), from a scan of the code column.
+     */
+    public Map<String, Long> countByCity(Filter filter) {
+        lock.readLock().lock();
+        try {
+            return countByCode(cityCodes, cities, filter);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Long> countByCode(int[] codes, Dictionary dictionary, Filter filter) {
+        long[] counts = new long[dictionary.size()];
+        for (int row = liveRows.nextSetBit(0); row >= 0; row = liveRows.nextSetBit(row + 1)) {
+            if (codes[row] != NULL_CODE && filter.test(row)) {
+                counts[codes[row]]++;
+            }
+        }
+        Map<String, Long> result = new HashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                result.put(dictionary.decode(code), counts[code]);
+            }
+        }
+        return result;
+    }
+
+    /* ------------------------ Filters ------------------------ */
+
+    /**
+     * Compiles grid filter constraints (property -> case-insensitive "contains" text)
+     * into a row filter. Country/city constraints are resolved against the dictionaries
+     * once, so the scan only compares int codes. Unknown properties match nothing.
+     */
+    public Filter filter(Map<String, String> constraints) {
+        if (constraints == null || constraints.isEmpty()) {
+            return Filter.ALL;
+        }
+        List<IntPredicate> parts = new ArrayList<>(constraints.size());
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<String, String> c : constraints.entrySet()) {
+                String needle = c.getValue().toLowerCase(Locale.ROOT);
+                switch (c.getKey()) {
+                    case "id" -> parts.add(row -> String.valueOf(ids[row]).contains(needle));
+                    case "name" -> parts.add(row -> textContains(row, F_NAME, needle));
+                    case "phone" -> parts.add(row -> textContains(row, F_PHONE, needle));
+                    case "email" -> parts.add(row -> textContains(row, F_EMAIL, needle));
+                    case "street" -> parts.add(row -> textContains(row, F_STREET, needle));
+                    case "country" -> {
+                        BitSet codes = countries.matching(needle);
+                        parts.add(row -> countryCodes[row] >= 0 && codes.get(countryCodes[row]));
+                    }
+                    case "city" -> {
+                        BitSet codes = cities.matching(needle);
+                        parts.add(row -> cityCodes[row] >= 0 && codes.get(cityCodes[row]));
+                    }
+                    default -> parts.add(row -> false);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        IntPredicate all = parts.stream().reduce(IntPredicate::and).orElse(row -> true);
+        return all::test;
+    }
+
+    /**
+     * Predicate over row numbers; only valid while the store's read lock is held,
+     * which is why it is only evaluated inside the store.
+     */
+    @FunctionalInterface
+    public interface Filter {
+        Filter ALL = row -> true;
+
+        boolean test(int row);
+    }
+
+    /* ------------------------ Internals ------------------------ */
+
+    private Person view(int row) {
+        return new Person(ids[row],
+                readText(row, F_NAME),
+                readText(row, F_PHONE),
+                readText(row, F_EMAIL),
+                countries.decode(countryCodes[row]),
+                cities.decode(cityCodes[row]),
+                readText(row, F_STREET));
+    }
+
+    private String textOf(int id, int field) {
+        lock.readLock().lock();
+        try {
+            int row = rowsById.get(id);
+            return row < 0 ? null : readText(row, field);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean textContains(int row, int field, String needle) {
+        String value = readText(row, field);
+        return value != null && value.toLowerCase(Locale.ROOT).contains(needle);
+    }
+
+    private int codeOf(int[] codes, int id) {
+        int row = rowsById.get(id);
+        return row < 0 ? NULL_CODE : codes[row];
+    }
+
+    private static int compareCodes(Dictionary dictionary, int codeA, int codeB) {
+        if (codeA == codeB) {
+            return 0;
+        }
+        if (codeA == NULL_CODE || codeB == NULL_CODE) {
+            return codeA == NULL_CODE ? 1 : -1;
+        }
+        return String.CASE_INSENSITIVE_ORDER.compare(dictionary.decode(codeA), dictionary.decode(codeB));
+    }
+
+    // Same result as CASE_INSENSITIVE_ORDER on the decoded Strings: ASCII bytes are folded
+    // and compared in place; at the first difference involving a non-ASCII byte the text from
+    // the start of that character on is decoded and compared as Strings (the equal prefix of
+    // whole characters does not change the result).
+    private int compareText(int rowA, int rowB, int field) {
+        int lengthA = rowA < 0 ? -1 : textLengths[rowA * TEXT_FIELDS + field];
+        int lengthB = rowB < 0 ? -1 : textLengths[rowB * TEXT_FIELDS + field];
+        if (lengthA < 0 || lengthB < 0) {
+            return lengthA < 0 ? (lengthB < 0 ? 0 : 1) : -1;
+        }
+        int offsetA = textOffsets[rowA * TEXT_FIELDS + field];
+        int offsetB = textOffsets[rowB * TEXT_FIELDS + field];
+        int n = Math.min(lengthA, lengthB);
+        for (int i = 0; i < n; i++) {
+            int a = text.get(offsetA + i);
+            int b = text.get(offsetB + i);
+            if (a == b) {
+                continue;
+            }
+            if (a < 0 || b < 0) { // non-ASCII (negative byte)
+                // back up to the lead byte: "Möller" and "Müder" first differ inside the
+                // two-byte ö/ü, and a decode from there would compare replacement characters
+                int start = i;
+                while (start > 0 && (isContinuation(a) || isContinuation(b))) {
+                    start--;
+                    a = text.get(offsetA + start);
+                    b = a; // bytes before i are equal on both sides
+                }
+                return String.CASE_INSENSITIVE_ORDER.compare(
+                        decode(offsetA + start, lengthA - start), decode(offsetB + start, lengthB - start));
+            }
+            int foldedA = a >= 'A' && a <= 'Z' ? a + 32 : a;
+            int foldedB = b >= 'A' && b <= 'Z' ? b + 32 : b;
+            if (foldedA != foldedB) {
+                return foldedA - foldedB;
+            }
+        }
+        return lengthA - lengthB;
+    }
+
+    // UTF-8 continuation byte 10xxxxxx
+    private static boolean isContinuation(int b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    private int allocateRow() {
+        if (freeCount > 0) {
+            return freeRows[--freeCount];
+        }
+        if (rowLimit == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            countryCodes = Arrays.copyOf(countryCodes, capacity);
+            cityCodes = Arrays.copyOf(cityCodes, capacity);
+            textOffsets = Arrays.copyOf(textOffsets, capacity * TEXT_FIELDS);
+            textLengths = Arrays.copyOf(textLengths, capacity * TEXT_FIELDS);
+        }
+        return rowLimit++;
+    }
+
+    private String readText(int row, int field) {
+        int slot = row * TEXT_FIELDS + field;
+        int length = textLengths[slot];
+        if (length < 0) {
+            return null;
+        }
+        return decode(textOffsets[slot], length);
+    }
+
+    private String decode(int offset, int length) {
+        if (text.hasArray()) {
+            return new String(text.array(), text.arrayOffset() + offset, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        text.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeText(int row, int field, String value) {
+        int slot = row * TEXT_FIELDS + field;
+        if (value == null) {
+            textLengths[slot] = -1;
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureTextCapacity(bytes.length);
+        text.put(textEnd, bytes);
+        textOffsets[slot] = textEnd;
+        textLengths[slot] = bytes.length;
+        textEnd += bytes.length;
+    }
+
+    private void releaseText(int row) {
+        for (int field = 0; field < TEXT_FIELDS; field++) {
+            int length = textLengths[row * TEXT_FIELDS + field];
+            if (length > 0) {
+                garbageBytes += length;
+            }
+        }
+    }
+
+    private void ensureTextCapacity(int extra) {
+        if (textEnd + extra <= text.capacity()) {
+            return;
+        }
+        int capacity = text.capacity();
+        while (capacity < textEnd + extra) {
+            capacity *= 2;
+        }
+        ByteBuffer grown = allocate(capacity);
+        grown.put(0, text, 0, textEnd);
+        text = grown;
+    }
+
+    // Rewrites the text buffer with only the values of live rows
+    private void compactText() {
+        ByteBuffer compacted = allocate(Math.max(INITIAL_TEXT_BYTES, textEnd - garbageBytes));
+        int end = 0;
+        for (int row = liveRows.nextSetBit(0); row >= 0; row = liveRows.nextSetBit(row + 1)) {
+            for (int field = 0; field < TEXT_FIELDS; field++) {
+                int slot = row * TEXT_FIELDS + field;
+                int length = textLengths[slot];
+                if (length > 0) {
+                    compacted.put(end, text, textOffsets[slot], length);
+                    textOffsets[slot] = end;
+                    end += length;
+                }
+            }
+        }
+        text = compacted;
+        textEnd = end;
+        garbageBytes = 0;
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return offHeap ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * Append-only value dictionary. Codes are never reused, so a code read once stays valid.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        String decode(int code) {
+            return code == NULL_CODE ? null : values.get(code);
+        }
+
+        BitSet matching(String lowerCaseNeedle) {
+            BitSet matches = new BitSet(values.size());
+            for (int code = 0; code < values.size(); code++) {
+                if (values.get(code).toLowerCase(Locale.ROOT).contains(lowerCaseNeedle)) {
+                    matches.set(code);
+                }
+            }
+            return matches;
+        }
+    }
+
+    /**
+     * Open-addressing int -> int hash map (linear probing, backward-shift deletion),
+     * so the id index needs no boxed keys or entry objects. Values are >= 0; -1 means absent.
+     */
+    private static final class IntIntMap {
+        private static final int EMPTY = Integer.MIN_VALUE;
+
+        private int[] keys = newKeys(INITIAL_ROWS * 2);
+        private int[] values = new int[INITIAL_ROWS * 2];
+        private int size;
+
+        private static int[] newKeys(int capacity) {
+            int[] keys = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+
+        private int slot(int key) {
+            int h = key * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & (keys.length - 1);
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(int key) {
+            for (int i = slot(key); ; i = (i + 1) & (keys.length - 1)) {
+                if (keys[i] == EMPTY) {
+                    return -1;
+                }
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+        }
+
+        void put(int key, int value) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            int i = slot(key);
+            while (keys[i] != EMPTY && keys[i] != key) {
+                i = (i + 1) & (keys.length - 1);
+            }
+            if (keys[i] == EMPTY) {
+                size++;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        int remove(int key) {
+            int mask = keys.length - 1;
+            int i = slot(key);
+            while (keys[i] != key) {
+                if (keys[i] == EMPTY) {
+                    return -1;
+                }
+                i = (i + 1) & mask;
+            }
+            int removed = values[i];
+            size--;
+            // shift following entries of the probe chain back into the hole
+            int hole = i;
+            for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+                int home = slot(keys[j]);
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    keys[hole] = keys[j];
+                    values[hole] = values[j];
+                    hole = j;
+                }
+            }
+            keys[hole] = EMPTY;
+            return removed;
+        }
+
+        void clear() {
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+        }
+
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = newKeys(capacity);
+            values = new int[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+}
@@ -1,116 +1,818 @@
 package com.example.phonebook.repository;
 
+import com.example.phonebook.db.Database;
+import com.example.phonebook.dedup.DuplicateIndex;
+import com.example.phonebook.journal.Journal;
+import com.example.phonebook.journal.JournalEntry;
 import com.example.phonebook.lock.Broadcaster;
+import com.example.phonebook.lock.LockRegistry;
+import com.example.phonebook.metrics.Counter;
+import com.example.phonebook.metrics.LatencyHistogram;
+import com.example.phonebook.metrics.Metrics;
 import com.example.phonebook.model.Person;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 public class DataService {
 
+    // Properties that have an ordered secondary index (same names as the Person fields / grid columns)
+    public static final String NAME = "name";
+    public static final String CITY = "city";
+    public static final String COUNTRY = "country";
+
     // --- Singleton instance so cache is shared across all users
-    private static final DataService INSTANCE = new DataService();
+    // (lazy holder, so DataService can be used with another backend without touching MySQL)
+    private static final class Holder {
+        private static final DataService INSTANCE = new DataService();
+    }
 
     // Public accessor for the singleton instance
     public static DataService getInstance() {
-        return INSTANCE;
+        return Holder.INSTANCE;
     }
-    private final PersonRepositoryJDBC repository = new PersonRepositoryJDBC();
+    private final PersonRepository repository;
 
     // New in-memory indexes for O(1) uniqueness checks
-    private final ConcurrentMap<String, Person> phoneIndex = new ConcurrentHashMap<>();  //Used by the binder validator and by save() method.
-    private final ConcurrentMap<Integer, String> idToPhone = new ConcurrentHashMap<>(); //To update/delete cache correctly, you must know the old phone number for that ID.
+    private final ConcurrentMap<String, Integer> phoneIndex = new ConcurrentHashMap<>();  //Used by the binder validator and by save() method.
+
+    // Contact cache in compact columnar form; Person objects are only built for the rows being read.
+    // The old phone of an id (needed to update/delete phoneIndex correctly) is read from here.
+    private final ContactColumnStore store = new ContactColumnStore();
+
+    // Ordered secondary indexes of ids, so sorted pages are served by walking an index.
+    // The comparators read the store, so an id must be removed before its row changes.
+    private final ConcurrentSkipListSet<Integer> nameIndex = new ConcurrentSkipListSet<>(
+            byStore(store::compareNames));
+    private final ConcurrentSkipListSet<Integer> cityIndex = new ConcurrentSkipListSet<>(
+            byStore(store::compareCities));
+    private final ConcurrentSkipListSet<Integer> countryIndex = new ConcurrentSkipListSet<>(
+            byStore(store::compareCountries));
+
+    private static final Counter CACHE_HIT = Metrics.counter("cache_hit");
+    private static final Counter CACHE_MISS = Metrics.counter("cache_miss");
+    private static final LatencyHistogram SEARCH = Metrics.histogram("search");
+
+    // Upper bound of global search results (also the LIMIT of the FULLTEXT query)
+    public static final int MAX_SEARCH_RESULTS = 10_000;
+    // InnoDB ignores shorter words (innodb_ft_min_token_size), so such terms are searched in the cache
+    private static final int MIN_FULLTEXT_TERM = 3;
+
+    // Descending pages below this offset are walked directly, deeper ones via the ascending order
+    private static final int DESCENDING_WALK_LIMIT = 1_000;
+
+    // Blocking keys for duplicate detection (phone suffix, email, phonetic name)
+    private final DuplicateIndex duplicateIndex = new DuplicateIndex();
+
+    // Bumped on every change of the cached data, so clients can tell whether anything changed (ETag)
+    private final AtomicLong version = new AtomicLong();
+
+    // Facet counts (contacts per country / city), adjusted on every save and delete
+    private final ConcurrentMap<String, Long> countryCounts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> cityCounts = new ConcurrentHashMap<>();
+
+    // Change journal (history, changes feed, fast restart); null if disabled
+    private final Journal journal;
+
+    // False while the cache could not be loaded from the database (started from a snapshot or empty)
+    private volatile boolean cacheComplete = true;
 
     // Constructor
     public DataService() {
-        reloadCache(); // build cache once at startup
+        this(new ResilientPersonRepository(new PersonRepositoryJDBC()), Journal.fromSystemProperties(Database.identity()));
+    }
+
+    // Constructor for a specific backend (e.g. PersonRepositoryInMemory without MySQL)
+    public DataService(PersonRepository repository) {
+        this(repository, null);
+    }
+
+    public DataService(PersonRepository repository, Journal journal) {
+        this.repository = repository;
+        this.journal = journal;
+        if (!recoverFromJournal()) {
+            try {
+                reloadCache(); // build cache once at startup
+                if (journal != null) {
+                    journal.snapshot(journal.lastSeq(), findAll());
+                }
+            } catch (RepositoryException e) {
+                e.printStackTrace();
+                startWithoutDatabase();
+            }
+        }
+        repository.setAvailabilityListener(this::availabilityChanged);
+        Metrics.gauge("cache_contacts", store::size);
+    }
+
+    // Database unreachable at startup: serve the newest snapshot (or nothing) as stale data
+    // until the repository is available again, then load the cache properly.
+    private synchronized void startWithoutDatabase() {
+        cacheComplete = false;
+        try {
+            Optional<Journal.Snapshot> snapshot = journal == null ? Optional.empty() : journal.latestSnapshot();
+            rebuild(snapshot.map(Journal.Snapshot::contacts).orElse(List.of()));
+        } catch (IOException e) {
+            e.printStackTrace();
+            rebuild(List.of());
+        }
+        version.incrementAndGet();
+    }
+
+    private void availabilityChanged(boolean available) {
+        if (available && !cacheComplete) {
+            // not on the calling thread: that is a repository call, possibly holding the DataService lock
+            new Thread(() -> {
+                try {
+                    reloadCache();
+                    cacheComplete = true;
+                    dataChanged();
+                } catch (RepositoryException e) {
+                    e.printStackTrace(); // failed again; the next recovery retries
+                }
+            }, "cache-reload").start();
+        }
+        Broadcaster.broadcast(available ? "REPOSITORY_AVAILABLE" : "REPOSITORY_UNAVAILABLE");
+    }
+
+    /**
+     * True while the database cannot be reached: the cache is still served (it may miss
+     * changes made directly in the database) and writes are rejected with RepositoryException.
+     */
+    public boolean isStale() {
+        return !cacheComplete || !repository.isAvailable();
+    }
+
+    /**
+     * Builds the cache from the newest snapshot plus the journal entries after it instead of
+     * reading the whole table. Only when recovery is enabled (-Dphonebook.journal.recovery),
+     * the journal replays without a gap after the snapshot, and the result has the row count
+     * and highest id of the table; otherwise the caller reloads from the database.
+     */
+    private synchronized boolean recoverFromJournal() {
+        if (journal == null || !journal.recoveryEnabled()) {
+            return false;
+        }
+        try {
+            Optional<Journal.Snapshot> snapshot = journal.latestSnapshot();
+            if (snapshot.isEmpty() || journal.oldestSeq() > snapshot.get().seq() + 1) {
+                return false;
+            }
+            rebuild(snapshot.get().contacts());
+            journal.forEachSince(snapshot.get().seq(), entry -> {
+                if (entry.type() == JournalEntry.Type.DELETE) {
+                    unindex(entry.contactId());
+                } else {
+                    index(entry.after());
+                }
+            });
+            // The journal only knows this node's changes: catch a restored or replaced
+            // database and rows inserted or deleted outside the application
+            Optional<PersonRepository.Fingerprint> table = repository.fingerprint();
+            int maxId = 0;
+            for (Integer id : nameIndex) {
+                maxId = Math.max(maxId, id);
+            }
+            if (table.isEmpty() || table.get().rows() != store.size() || table.get().maxId() != maxId) {
+                System.err.println("Journal does not match the database (" + store.size() + " contacts, max id " + maxId
+                        + ", database " + table.map(Object::toString).orElse("unknown") + "), reloading");
+                return false;
+            }
+            version.incrementAndGet();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace(); // fall back to the database
+            return false;
+        }
     }
 
     private synchronized void reloadCache() {
-        phoneIndex.clear();
-        idToPhone.clear();
+        rebuild(repository.findAll());
+        version.incrementAndGet();
+    }
 
-        List<Person> all = repository.findAll();
+    private void rebuild(List<Person> all) {
+        phoneIndex.clear();
+        nameIndex.clear();
+        cityIndex.clear();
+        countryIndex.clear();
+        store.clear();
+        countryCounts.clear();
+        cityCounts.clear();
+        duplicateIndex.clear();
+
+        List<Integer> ids = new ArrayList<>(all.size());
         for (Person p : all) {
-            if (p.getPhone() != null) {
-                phoneIndex.put(p.getPhone(), p);
+            if (p.getId() == null) {
+                continue;
             }
-            if (p.getId() != null && p.getPhone() != null) {
-                idToPhone.put(p.getId(), p.getPhone());
+            store.put(p);
+            if (p.getPhone() != null) {
+                phoneIndex.put(p.getPhone(), p.getId());
             }
+            adjust(countryCounts, p.getCountry(), 1);
+            adjust(cityCounts, p.getCity(), 1);
+            duplicateIndex.add(p.getId(), p.getName(), p.getPhone(), p.getEmail(), p.getCity());
+            ids.add(p.getId());
         }
+        // Insert each index in its own order: every skip list insert then lands next to the
+        // previous one, which is several times faster than random order on large phonebooks.
+        fillSorted(nameIndex, ids);
+        fillSorted(cityIndex, ids);
+        fillSorted(countryIndex, ids);
+    }
 
+    private static void fillSorted(ConcurrentSkipListSet<Integer> index, List<Integer> ids) {
+        List<Integer> sorted = new ArrayList<>(ids);
+        sorted.sort(index.comparator());
+        index.addAll(sorted);
+    }
 
+    // Put the contact into the store and all indexes (replacing an older version)
+    private void index(Person contact) {
+        if (contact.getId() == null) {
+            return;
+        }
+        Integer id = contact.getId();
+        String oldPhone = store.phone(id);
+        if (oldPhone != null) {
+            phoneIndex.remove(oldPhone, id);
+        }
+        if (store.contains(id)) {
+            adjust(countryCounts, store.country(id), -1);
+            adjust(cityCounts, store.city(id), -1);
+            duplicateIndex.remove(id, store.name(id), oldPhone, store.email(id), store.city(id));
+        }
+        removeFromSortedIndexes(id);
+
+        store.put(contact);
+
+        if (contact.getPhone() != null) {
+            phoneIndex.put(contact.getPhone(), id);
+        }
+        adjust(countryCounts, contact.getCountry(), 1);
+        adjust(cityCounts, contact.getCity(), 1);
+        duplicateIndex.add(id, contact.getName(), contact.getPhone(), contact.getEmail(), contact.getCity());
+        nameIndex.add(id);
+        cityIndex.add(id);
+        countryIndex.add(id);
     }
 
+    private void unindex(Integer id) {
+        String oldPhone = store.phone(id);
+        if (oldPhone != null) {
+            phoneIndex.remove(oldPhone, id);
+        }
+        if (store.contains(id)) {
+            adjust(countryCounts, store.country(id), -1);
+            adjust(cityCounts, store.city(id), -1);
+            duplicateIndex.remove(id, store.name(id), oldPhone, store.email(id), store.city(id));
+        }
+        removeFromSortedIndexes(id);
+        store.remove(id);
+    }
 
+    // Atomic +/- on a facet counter; values that drop to zero are removed
+    private static void adjust(ConcurrentMap<String, Long> counts, String value, long delta) {
+        if (value == null) {
+            return;
+        }
+        counts.compute(value, (k, count) -> {
+            long updated = (count == null ? 0 : count) + delta;
+            return updated > 0 ? updated : null;
+        });
+    }
+
+    private void removeFromSortedIndexes(Integer id) {
+        if (store.contains(id)) {
+            nameIndex.remove(id);
+            cityIndex.remove(id);
+            countryIndex.remove(id);
+        }
+    }
+
+
+    // All contacts ordered by name, served from the cache
     public List<Person> findAll() {
-        return repository.findAll();
+        List<Person> contacts = new ArrayList<>(store.size());
+        for (Integer id : nameIndex) {
+            Person p = store.get(id);
+            if (p != null) {
+                contacts.add(p);
+            }
+        }
+        return contacts;
     }
 
+    public static boolean isIndexed(String property) {
+        return NAME.equals(property) || CITY.equals(property) || COUNTRY.equals(property);
+    }
 
+    /**
+     * Walks the ordered index of the given property (NAME, CITY or COUNTRY), keeping the
+     * contacts that match the grid filter constraints (property -> contained text).
+     * The stream is lazy, but rows skipped by the caller are still decoded; use findPage() for grid pages.
+     */
+    public Stream<Person> streamOrderedBy(String property, boolean ascending, Map<String, String> constraints) {
+        NavigableSet<Integer> index = index(property);
+        ContactColumnStore.Filter filter = store.filter(constraints);
+        return (ascending ? index : index.descendingSet()).stream()
+                .map(id -> store.getIfMatches(id, filter))
+                .filter(Objects::nonNull);
+    }
 
+    /**
+     * One page of streamOrderedBy(): ids are filtered and skipped on the columns, so only
+     * the returned contacts are turned into Person objects, however deep the offset.
+     */
+    public List<Person> findPage(String property, boolean ascending, Map<String, String> constraints,
+                                 int offset, int limit) {
+        NavigableSet<Integer> index = index(property);
+        ContactColumnStore.Filter filter = store.filter(constraints);
+        if (ascending || offset < DESCENDING_WALK_LIMIT) {
+            return walk(ascending ? index : index.descendingSet(), filter, offset, limit);
+        }
+        // Each step of a descending skip list iteration is a new search, so deep descending
+        // pages are read as the mirrored ascending range and reversed.
+        long total = filter == ContactColumnStore.Filter.ALL ? store.size() : store.count(filter);
+        long end = total - offset;
+        if (end <= 0) {
+            return new ArrayList<>();
+        }
+        long begin = Math.max(0, end - limit);
+        List<Person> page = walk(index, filter, (int) begin, (int) (end - begin));
+        Collections.reverse(page);
+        return page;
+    }
 
-    // Save contact (insert or update)
-    public synchronized void save(Person contact) {
+    private List<Person> walk(Iterable<Integer> ids, ContactColumnStore.Filter filter, int offset, int limit) {
+        List<Person> page = new ArrayList<>(Math.min(limit, 1024));
+        int skipped = 0;
+        for (Integer id : ids) {
+            if (page.size() >= limit) {
+                break;
+            }
+            if (filter != ContactColumnStore.Filter.ALL && !store.matches(id, filter)) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            Person p = store.getIfMatches(id, filter); // null if changed meanwhile
+            if (p != null) {
+                page.add(p);
+            }
+        }
+        return page;
+    }
 
-        String phone = contact.getPhone();
+    private NavigableSet<Integer> index(String property) {
+        return switch (property) {
+            case CITY -> cityIndex;
+            case COUNTRY -> countryIndex;
+            case NAME -> nameIndex;
+            default -> throw new IllegalArgumentException("No index for property " + property);
+        };
+    }
 
-        Integer id = contact.getId();
+    // Index order: the store comparison (no Strings decoded), then id to keep entries distinct
+    private static Comparator<Integer> byStore(Comparator<Integer> storeOrder) {
+        return storeOrder.thenComparing(Comparator.naturalOrder());
+    }
 
-        if (id == null) {
-            // INSERT
-            repository.add(contact);
-
-            // get generated id back from DB
-            Optional<Person> saved = repository.findByPhone(phone);
-            saved.ifPresent(p -> {
-                contact.setId(p.getId());
-                phoneIndex.put(phone, p);
-                idToPhone.put(p.getId(), phone);
-                Broadcaster.broadcast("DATA_UPDATED");
-            });
+    /**
+     * Keyset paging for clients that poll: up to limit contacts matching the constraints that
+     * come after (afterKey, afterId) in ascending property order, or from the start if afterId
+     * is null. Unlike an offset, the position survives inserts and deletes before it.
+     */
+    public List<Person> findAfter(String property, Map<String, String> constraints,
+                                  Integer afterId, String afterKey, int limit) {
+        NavigableSet<Integer> index = index(property);
+        ContactColumnStore.Filter filter = store.filter(constraints);
+        if (afterId == null) {
+            return walk(index, filter, 0, limit);
+        }
+        if (store.contains(afterId) && Objects.equals(key(property, afterId), afterKey)) {
+            return walk(index.tailSet(afterId, false), filter, 0, limit); // still in place: seek
+        }
+        // The last contact of the previous page was changed or deleted: find its old position
+        Comparator<String> keyOrder = Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER);
+        Iterable<Integer> after = () -> index.stream()
+                .filter(id -> {
+                    int c = keyOrder.compare(key(property, id), afterKey);
+                    return c > 0 || (c == 0 && id > afterId);
+                })
+                .iterator();
+        return walk(after, filter, 0, limit);
+    }
 
-        } else {
-            // UPDATE
-            String oldPhone = idToPhone.get(id);
-            repository.update(contact);
+    /**
+     * The value of an indexed property (NAME, CITY or COUNTRY) of a cached contact.
+     */
+    public String key(String property, int id) {
+        return switch (property) {
+            case CITY -> store.city(id);
+            case COUNTRY -> store.country(id);
+            case NAME -> store.name(id);
+            default -> throw new IllegalArgumentException("No index for property " + property);
+        };
+    }
 
-            if (oldPhone != null && !oldPhone.equals(phone)) {
-                phoneIndex.remove(oldPhone);
+    /**
+     * Global search: contacts (at most MAX_SEARCH_RESULTS) that contain every word of the text
+     * as a word prefix in any field, and match the grid filter constraints, ordered by name.
+     * Uses the database FULLTEXT index when there is one, otherwise scans the cache.
+     */
+    public List<Person> search(String text, Map<String, String> constraints) {
+        long start = System.nanoTime();
+        try {
+            List<String> terms = searchTerms(text);
+            if (terms.isEmpty()) {
+                return new ArrayList<>();
+            }
+            ContactColumnStore.Filter filter = store.filter(constraints);
+            Optional<List<Integer>> ids = Optional.empty();
+            if (repository.isAvailable() && terms.stream().allMatch(t -> t.length() >= MIN_FULLTEXT_TERM)) {
+                try {
+                    ids = repository.searchIds(terms, MAX_SEARCH_RESULTS);
+                } catch (RepositoryException e) {
+                    e.printStackTrace(); // the cache can answer too
+                }
+            }
+            List<Person> result = new ArrayList<>();
+            if (ids.isPresent()) {
+                for (Integer id : ids.get()) {
+                    Person p = store.getIfMatches(id, filter);
+                    if (p != null) {
+                        result.add(p);
+                    }
+                }
+                result.sort(Person.NAME_COMPARATOR.thenComparing(Person::getId));
+                return result;
             }
-            phoneIndex.put(phone, contact);
-            idToPhone.put(id, phone);
-            Broadcaster.broadcast("DATA_UPDATED");
+            for (Integer id : nameIndex) {
+                if (filter != ContactColumnStore.Filter.ALL && !store.matches(id, filter)) {
+                    continue;
+                }
+                Person p = store.get(id);
+                if (p != null && matchesTerms(p, terms)) {
+                    result.add(p);
+                    if (result.size() >= MAX_SEARCH_RESULTS) {
+                        break;
+                    }
+                }
+            }
+            return result;
+        } finally {
+            SEARCH.recordSince(start);
+        }
+    }
+
+    // Lower-case words of the search text (letters and digits; everything else separates words)
+    public static List<String> searchTerms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty() && !terms.contains(word)) {
+                terms.add(word);
+            }
+        }
+        return terms;
+    }
+
+    // Same semantics as the FULLTEXT boolean query "+term1* +term2* ..."
+    public static boolean matchesTerms(Person p, List<String> terms) {
+        String[] fields = {p.getName(), p.getPhone(), p.getEmail(), p.getCountry(), p.getCity(), p.getStreet()};
+        for (String term : terms) {
+            boolean found = false;
+            for (int i = 0; i < fields.length && !found; i++) {
+                found = fields[i] != null && containsWordPrefix(fields[i].toLowerCase(Locale.ROOT), term);
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsWordPrefix(String value, String term) {
+        for (int from = value.indexOf(term); from >= 0; from = value.indexOf(term, from + 1)) {
+            if (from == 0 || !Character.isLetterOrDigit(value.charAt(from - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    public int count() {
+        return store.size();
+    }
+
+    // Column scan over the store, no Person objects are created
+    public long count(Map<String, String> constraints) {
+        return store.count(store.filter(constraints));
+    }
+
+    /**
+     * Contacts per country, largest first. Without constraints this is the incrementally
+     * maintained count; with grid filter constraints it is a column scan of the store.
+     */
+    public Map<String, Long> countByCountry(Map<String, String> constraints) {
+        if (constraints == null || constraints.isEmpty()) {
+            return largestFirst(countryCounts);
+        }
+        return largestFirst(store.countByCountry(store.filter(constraints)));
+    }
+
+    /**
+     * Contacts per city, largest first (see countByCountry).
+     */
+    public Map<String, Long> countByCity(Map<String, String> constraints) {
+        if (constraints == null || constraints.isEmpty()) {
+            return largestFirst(cityCounts);
         }
+        return largestFirst(store.countByCity(store.filter(constraints)));
+    }
+
+    public static Map<String, Long> largestFirst(Map<String, Long> counts) {
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .forEach(e -> sorted.put(e.getKey(), e.getValue()));
+        return sorted;
+    }
+
+
+
+
+    // Save contact (insert or update)
+    public void save(Person contact) {
+        long seq = 0;
+        synchronized (this) {
+            Integer id = contact.getId();
+
+            if (id == null) {
+                // INSERT (the repository sets the generated id on the contact)
+                repository.add(contact);
+
+                if (contact.getId() == null) {
+                    return; // not inserted (the in-memory backend skips a duplicate phone; JDBC throws)
+                }
+                Person saved = new Person(contact);
+                index(saved);
+                seq = journal(List.of(JournalEntry.insert(saved)));
+                dataChanged();
+
+            } else {
+                // UPDATE
+                Person before = store.get(id);
+                repository.update(contact);
+                index(contact);
+                seq = journal(List.of(JournalEntry.update(before, contact)));
+                dataChanged();
+            }
+        }
+        awaitJournal(seq);
     }
 
     // Delete contact
-    public synchronized void delete(Person contact) {
+    public void delete(Person contact) {
         if (contact == null) return;
 
-        repository.delete(contact);
+        long seq = 0;
+        synchronized (this) {
+            Person before = contact.getId() == null ? null : store.get(contact.getId());
+            repository.delete(contact);
 
-        if (contact.getPhone() != null) {
-            phoneIndex.remove(contact.getPhone());
+            if (contact.getId() != null) {
+                unindex(contact.getId());
+                seq = journal(List.of(JournalEntry.delete(before != null ? before : contact)));
+            }
+
+            dataChanged();
+        }
+        awaitJournal(seq);
+    }
+
+
+
+    /**
+     * Outcome of a batch operation: how many contacts were changed and which
+     * ones were skipped because another user is editing them.
+     */
+    public record BatchResult(int applied, List<Integer> lockedIds) {
+    }
+
+    /**
+     * Deletes the contacts with one DELETE ... WHERE id IN (...), skipping records that
+     * another session holds in LockRegistry. One cache update pass and one broadcast.
+     */
+    public BatchResult deleteAll(Collection<Person> contacts, String sessionId) {
+        BatchResult result;
+        long seq = 0;
+        synchronized (this) {
+            List<Integer> ids = new ArrayList<>();
+            List<Integer> locked = new ArrayList<>();
+            for (Person contact : contacts) {
+                if (contact == null || contact.getId() == null) {
+                    continue;
+                }
+                if (LockRegistry.isLockedByOther(contact.getId(), sessionId)) {
+                    locked.add(contact.getId());
+                } else {
+                    ids.add(contact.getId());
+                }
+            }
+            if (ids.isEmpty()) {
+                return new BatchResult(0, locked);
+            }
+
+            List<JournalEntry> entries = new ArrayList<>(ids.size());
+            for (Integer id : ids) {
+                Person before = store.get(id);
+                if (before != null) {
+                    entries.add(JournalEntry.delete(before));
+                }
+            }
+            int deleted = repository.deleteAll(ids);
+            if (deleted > 0) {
+                for (Integer id : ids) {
+                    unindex(id);
+                }
+                seq = journal(entries);
+                dataChanged();
+            }
+            result = new BatchResult(deleted, locked);
         }
-        if (contact.getId() != null) {
-            idToPhone.remove(contact.getId());
+        awaitJournal(seq);
+        return result;
+    }
+
+    /**
+     * Sets country and/or city (null = leave unchanged) on all given contacts in one
+     * transaction, skipping records that another session holds in LockRegistry.
+     * One cache update pass and one broadcast.
+     */
+    public BatchResult updateAll(Collection<Person> contacts, String country, String city,
+                                 String sessionId) {
+        BatchResult result;
+        long seq = 0;
+        synchronized (this) {
+            List<Integer> ids = new ArrayList<>();
+            List<Integer> locked = new ArrayList<>();
+            for (Person contact : contacts) {
+                if (contact == null || contact.getId() == null) {
+                    continue;
+                }
+                if (LockRegistry.isLockedByOther(contact.getId(), sessionId)) {
+                    locked.add(contact.getId());
+                } else {
+                    ids.add(contact.getId());
+                }
+            }
+            if (ids.isEmpty()) {
+                return new BatchResult(0, locked);
+            }
+
+            // Only rows the database actually changed are cached and journaled: a contact
+            // deleted on another node must not come back through this node's cache.
+            List<Integer> updatedIds = repository.updateAll(ids, country, city);
+            List<JournalEntry> entries = new ArrayList<>(updatedIds.size());
+            for (Integer id : updatedIds) {
+                Person before = store.get(id);
+                Person updated = before != null ? new Person(before) : repository.findById(id).orElse(null);
+                if (updated == null) {
+                    continue; // deleted again meanwhile
+                }
+                if (before != null) {
+                    if (country != null) {
+                        updated.setCountry(country);
+                    }
+                    if (city != null) {
+                        updated.setCity(city);
+                    }
+                }
+                index(updated);
+                entries.add(JournalEntry.update(before, updated));
+            }
+            if (!updatedIds.isEmpty()) {
+                seq = journal(entries);
+                dataChanged();
+            }
+            result = new BatchResult(updatedIds.size(), locked);
         }
+        awaitJournal(seq);
+        return result;
+    }
 
-        Broadcaster.broadcast("DATA_UPDATED");
+
+
+    // Called under the DataService lock after the repository accepted the change, so the journal
+    // order is the commit order. Only queues the entries and returns their last seq (0 if none):
+    // the caller waits in awaitJournal() after releasing the lock, so concurrent writers share
+    // one fsync. A journal failure does not undo the (already committed) change.
+    private long journal(List<JournalEntry> entries) {
+        if (journal == null || entries.isEmpty()) {
+            return 0;
+        }
+        try {
+            long seq = journal.append(entries);
+            if (journal.snapshotDue()) {
+                journal.snapshot(journal.lastSeq(), findAll());
+            }
+            return seq;
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return 0;
+        }
     }
 
+    // Outside the DataService lock: returns once the entries up to seq are durable (fsync=always)
+    private void awaitJournal(long seq) {
+        if (journal == null || seq == 0) {
+            return;
+        }
+        try {
+            journal.awaitDurable(seq);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
 
+    public Optional<Journal> journal() {
+        return Optional.ofNullable(journal);
+    }
+
+    // Every change to the cached data ends here: new version, then all UIs are told to refresh
+    private void dataChanged() {
+        version.incrementAndGet();
+        Broadcaster.broadcast("DATA_UPDATED");
+    }
 
     public Optional<Person> findById(Integer id) {
-        return repository.findById(id);
+        Person cached = id == null ? null : store.get(id);
+        if (cached != null) {
+            CACHE_HIT.inc();
+            return Optional.of(cached);
+        }
+        CACHE_MISS.inc();
+        if (id == null || !repository.isAvailable()) {
+            return Optional.empty(); // the cache is all we have
+        }
+        try {
+            return repository.findById(id);
+        } catch (RepositoryException e) {
+            e.printStackTrace();
+            return Optional.empty();
+        }
+    }
+
+    // Cached contact by id, never going to the database (null if not cached)
+    public Person getFromCache(int id) {
+        Person cached = store.get(id);
+        if (cached == null) {
+            CACHE_MISS.inc();
+        } else {
+            CACHE_HIT.inc();
+        }
+        return cached;
+    }
+
+    public DuplicateIndex duplicateIndex() {
+        return duplicateIndex;
     }
 
     public Person getFromCache(String phone) {
-        return phoneIndex.get(phone); // O(1)
+        Integer id = phoneIndex.get(phone); // O(1)
+        if (id == null) {
+            CACHE_MISS.inc();
+            return null;
+        }
+        CACHE_HIT.inc();
+        return store.get(id);
     }
 
 
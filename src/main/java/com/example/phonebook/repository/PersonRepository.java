@@ -0,0 +1,97 @@
+package com.example.phonebook.repository;
+
+import com.example.phonebook.model.Person;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Storage backend for contacts.
+ * Implemented by the MySQL backend (PersonRepositoryJDBC) and by the shared
+ * in-memory backend (PersonRepositoryInMemory) used when no database is available.
+ *
+ * Failures are thrown as RepositoryException; an empty result always means "no contacts".
+ */
+
+public interface PersonRepository {
+
+    /**
+     * All contacts ordered by name.
+     */
+    List<Person> findAll();
+
+    Optional<Person> findByPhone(String phone);
+
+    Optional<Person> findById(Integer id);
+
+    /**
+     * Id of the contact with this phone (an existence check that needs no other column).
+     */
+    default Optional<Integer> findIdByPhone(String phone) {
+        return findByPhone(phone).map(Person::getId);
+    }
+
+    /**
+     * Inserts the contact and sets its generated id on it (left null if it was not inserted).
+     */
+    void add(Person contact);
+
+    void update(Person contact);
+
+    void delete(Person contact);
+
+    /**
+     * Deletes all contacts with the given ids in one transaction.
+     * Returns the number of deleted contacts.
+     */
+    int deleteAll(Collection<Integer> ids);
+
+    /**
+     * Sets country and/or city (null = leave unchanged) on the contacts with the given ids
+     * in one transaction, without touching their other columns. Returns the ids of the
+     * contacts that were updated; ids that no longer exist are left out.
+     */
+    List<Integer> updateAll(Collection<Integer> ids, String country, String city);
+
+    /**
+     * Ids of up to limit contacts that contain every term as a word prefix in any text column,
+     * using a full-text index of the backend; empty if the backend has none (the caller then
+     * searches its cache).
+     */
+    default Optional<List<Integer>> searchIds(List<String> terms, int limit) {
+        return Optional.empty();
+    }
+
+    /**
+     * Row count and highest id of the contacts, a cheap check that a cache built without
+     * reading every row (journal recovery) still matches the backend; empty if the backend
+     * cannot tell (the caller then reads everything).
+     */
+    default Optional<Fingerprint> fingerprint() {
+        return Optional.empty();
+    }
+
+    record Fingerprint(long rows, int maxId) {
+    }
+
+    /**
+     * Throws RepositoryException if the backend cannot be reached (cheap health probe).
+     */
+    default void checkAvailable() {
+    }
+
+    /**
+     * False while calls are being rejected without trying the backend (circuit open).
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * Called with the new availability whenever isAvailable() changes.
+     */
+    default void setAvailabilityListener(Consumer<Boolean> listener) {
+    }
+}
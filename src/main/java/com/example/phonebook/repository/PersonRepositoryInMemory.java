@@ -0,0 +1,178 @@
+package com.example.phonebook.repository;
+
+import com.example.phonebook.model.Person;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe in-memory contact store.
+ *
+ * - id -> contact hash index for O(1) lookups
+ * - phone -> id index mirroring the UNIQUE phone key of the MySQL table
+ * - name-ordered skip list so findAll() needs no sort
+ * - atomic id sequence instead of scanning for max(id)
+ *
+ * Stored contacts are private copies; callers always get their own copy back,
+ * so editing a returned Person (e.g. through a Binder) never corrupts the indexes.
+ */
+public class PersonRepositoryInMemory implements PersonRepository {
+
+    // --- Shared instance so every UI sees the same data
+    private static final PersonRepositoryInMemory SHARED = new PersonRepositoryInMemory();
+
+    public static PersonRepositoryInMemory getShared() {
+        return SHARED;
+    }
+
+    private static final Comparator<Person> NAME_ORDER =
+            Person.NAME_COMPARATOR.thenComparing(Person::getId);
+
+    private final ConcurrentMap<Integer, Person> byId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Integer> phoneToId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Person> byName = new ConcurrentSkipListSet<>(NAME_ORDER);
+    private final AtomicInteger idSequence = new AtomicInteger();
+
+    @Override
+    public List<Person> findAll() {
+        List<Person> contacts = new ArrayList<>(byId.size());
+        for (Person p : byName) {
+            contacts.add(new Person(p));
+        }
+        return contacts;
+    }
+
+    @Override
+    public Optional<Person> findByPhone(String phone) {
+        if (phone == null) {
+            return Optional.empty();
+        }
+        Integer id = phoneToId.get(phone);
+        return id == null ? Optional.empty() : findById(id);
+    }
+
+    @Override
+    public Optional<Person> findById(Integer id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        Person stored = byId.get(id);
+        return stored == null ? Optional.empty() : Optional.of(new Person(stored));
+    }
+
+    @Override
+    public void add(Person contact) {
+        int id;
+        if (contact.getId() == null) {
+            id = idSequence.incrementAndGet();
+        } else {
+            id = contact.getId();
+            idSequence.accumulateAndGet(id, Math::max);
+        }
+
+        // same behaviour as the UNIQUE phone key: a duplicate phone is not inserted.
+        // An explicit id that already exists replaces that row and its index entries.
+        Person stored = new Person(contact);
+        stored.setId(id);
+        if (byId.compute(id, (key, old) -> store(old, stored)) == stored) {
+            contact.setId(id);
+        }
+    }
+
+    @Override
+    public void update(Person contact) {
+        if (contact.getId() == null) {
+            return;
+        }
+        Person stored = new Person(contact);
+        byId.computeIfPresent(contact.getId(), (id, old) -> store(old, stored));
+    }
+
+    // Index maintenance for byId.compute*: returns the row to keep under stored's id
+    private Person store(Person old, Person stored) {
+        Integer id = stored.getId();
+        String newPhone = stored.getPhone();
+        String oldPhone = old == null ? null : old.getPhone();
+        if (newPhone != null && !newPhone.equals(oldPhone)) {
+            Integer holder = phoneToId.putIfAbsent(newPhone, id);
+            if (holder != null && !holder.equals(id)) {
+                return old; // phone taken by another contact, keep the old row
+            }
+        }
+        if (old != null) {
+            byName.remove(old);
+            if (oldPhone != null && !oldPhone.equals(newPhone)) {
+                phoneToId.remove(oldPhone, id);
+            }
+        }
+        byName.add(stored);
+        return stored;
+    }
+
+    @Override
+    public void delete(Person contact) {
+        if (contact == null || contact.getId() == null) {
+            return;
+        }
+        byId.computeIfPresent(contact.getId(), (id, old) -> {
+            byName.remove(old);
+            if (old.getPhone() != null) {
+                phoneToId.remove(old.getPhone(), id);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<Fingerprint> fingerprint() {
+        int maxId = 0;
+        for (Integer id : byId.keySet()) {
+            maxId = Math.max(maxId, id);
+        }
+        return Optional.of(new Fingerprint(byId.size(), maxId));
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        int deleted = 0;
+        for (Integer id : ids) {
+            if (byId.containsKey(id)) {
+                delete(new Person(id, null, null, null, null, null, null));
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<Integer> updateAll(Collection<Integer> ids, String country, String city) {
+        List<Integer> updated = new ArrayList<>();
+        for (Integer id : ids) {
+            if (id == null) {
+                continue;
+            }
+            // the phone does not change, so store() always keeps the new row
+            Person row = byId.computeIfPresent(id, (key, old) -> {
+                Person stored = new Person(old);
+                if (country != null) {
+                    stored.setCountry(country);
+                }
+                if (city != null) {
+                    stored.setCity(city);
+                }
+                return store(old, stored);
+            });
+            if (row != null) {
+                updated.add(id);
+            }
+        }
+        return updated;
+    }
+}
@@ -1,32 +1,86 @@
 package com.example.phonebook.repository;
 
 import com.example.phonebook.db.Database;
+import com.example.phonebook.metrics.Counter;
+import com.example.phonebook.metrics.LatencyHistogram;
+import com.example.phonebook.metrics.Metrics;
 import com.example.phonebook.model.Person;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
-public class PersonRepositoryJDBC {
+public class PersonRepositoryJDBC implements PersonRepository {
 
+    // Latency per repository operation (including connection acquisition) and failure count
+    private static final LatencyHistogram FIND_ALL = Metrics.histogram("repository_find_all");
+    private static final LatencyHistogram FIND_BY_PHONE = Metrics.histogram("repository_find_by_phone");
+    private static final LatencyHistogram FIND_BY_ID = Metrics.histogram("repository_find_by_id");
+    private static final LatencyHistogram ADD = Metrics.histogram("repository_add");
+    private static final LatencyHistogram UPDATE = Metrics.histogram("repository_update");
+    private static final LatencyHistogram DELETE = Metrics.histogram("repository_delete");
+    private static final LatencyHistogram DELETE_ALL = Metrics.histogram("repository_delete_all");
+    private static final LatencyHistogram UPDATE_ALL = Metrics.histogram("repository_update_all");
+    private static final LatencyHistogram SEARCH = Metrics.histogram("repository_search");
+    private static final Counter ERRORS = Metrics.counter("repository_errors");
 
+    /**
+     * Column lists of the queries. Rows are mapped by column position, in this order, instead of
+     * looking every column up by name for every row; columns nobody reads (last_updated) are not
+     * transferred. The grid and the editor show the same fields, so one contact projection
+     * serves both.
+     */
+    enum Projection {
+        ID("id"),
+        CONTACT("id, name, phone, email, country, city, street");
+
+        final String columns;
+
+        Projection(String columns) {
+            this.columns = columns;
+        }
+    }
+
+    // Positions in Projection.CONTACT
+    private static final int COL_ID = 1;
+    private static final int COL_NAME = 2;
+    private static final int COL_PHONE = 3;
+    private static final int COL_EMAIL = 4;
+    private static final int COL_COUNTRY = 5;
+    private static final int COL_CITY = 6;
+    private static final int COL_STREET = 7;
+
+    // Failures are thrown as RepositoryException (never swallowed into empty results), and every
+    // statement has a query timeout (Database.QUERY_TIMEOUT_SECONDS / BULK_TIMEOUT_SECONDS), so a
+    // stalled database cannot block a request thread indefinitely.
+
+
+    @Override
     public List<Person> findAll() {
+        long start = System.nanoTime();
         List<Person> contacts = new ArrayList<>();
-        String sql = "SELECT * FROM contacts ORDER BY name";
+        String sql = "SELECT " + Projection.CONTACT.columns + " FROM contacts ORDER BY name";
 
         try (Connection conn = Database.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-
-            while (rs.next()) {
-                contacts.add(mapRow(rs));
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setQueryTimeout(Database.BULK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    contacts.add(mapRow(rs));
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            ERRORS.inc();
+            throw RepositoryException.of("findAll", e);
+        } finally {
+            FIND_ALL.recordSince(start);
         }
         return contacts;
     }
@@ -35,42 +89,81 @@ public class PersonRepositoryJDBC {
 
 
 
+    @Override
     public Optional<Person> findByPhone(String phone) {
-        String sql = "SELECT * FROM contacts WHERE phone = ?";
+        long start = System.nanoTime();
+        String sql = "SELECT " + Projection.CONTACT.columns + " FROM contacts WHERE phone = ?";
         try (Connection conn = Database.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setQueryTimeout(Database.QUERY_TIMEOUT_SECONDS);
             stmt.setString(1, phone);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return Optional.of(mapRow(rs));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(mapRow(rs));
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            ERRORS.inc();
+            throw RepositoryException.of("findByPhone", e);
+        } finally {
+            FIND_BY_PHONE.recordSince(start);
         }
         return Optional.empty();
     }
 
+    @Override
     public Optional<Person> findById(Integer id) {
-        String sql = "SELECT * FROM contacts WHERE id = ?";
+        long start = System.nanoTime();
+        String sql = "SELECT " + Projection.CONTACT.columns + " FROM contacts WHERE id = ?";
         try (Connection conn = Database.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setQueryTimeout(Database.QUERY_TIMEOUT_SECONDS);
             stmt.setInt(1, id);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return Optional.of(mapRow(rs));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            ERRORS.inc();
+            throw RepositoryException.of("findById", e);
+        } finally {
+            FIND_BY_ID.recordSince(start);
+        }
+        return Optional.empty();
+    }
+
+    // Existence check: answered from the unique phone index alone
+    @Override
+    public Optional<Integer> findIdByPhone(String phone) {
+        long start = System.nanoTime();
+        String sql = "SELECT " + Projection.ID.columns + " FROM contacts WHERE phone = ?";
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setQueryTimeout(Database.QUERY_TIMEOUT_SECONDS);
+            stmt.setString(1, phone);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(rs.getInt(COL_ID));
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            ERRORS.inc();
+            throw RepositoryException.of("findIdByPhone", e);
+        } finally {
+            FIND_BY_PHONE.recordSince(start);
         }
         return Optional.empty();
     }
 
 
+    @Override
     public void add(Person contact) {
+        long start = System.nanoTime();
         String sql = "INSERT INTO contacts (name, phone, email, country, city, street) VALUES (?, ?, ?, ?, ?, ?)";
         try (Connection conn = Database.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setQueryTimeout(Database.QUERY_TIMEOUT_SECONDS);
             stmt.setString(1, contact.getName());
             stmt.setString(2, contact.getPhone());
             stmt.setString(3, contact.getEmail());
@@ -78,18 +171,29 @@ public class PersonRepositoryJDBC {
             stmt.setString(5, contact.getCity());
             stmt.setString(6, contact.getStreet());
             stmt.executeUpdate();
+            // the generated id comes back with the insert, no second query needed
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    contact.setId(keys.getInt(1));
+                }
+            }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ERRORS.inc();
+            throw RepositoryException.of("add", e);
+        } finally {
+            ADD.recordSince(start);
         }
     }
 
 
+    @Override
     public void update(Person contact) {
+        long start = System.nanoTime();
         String sql = "UPDATE contacts SET name=?, phone=?,email=?, country=?, city=?, street=? WHERE id=?";
         try (Connection conn = Database.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-
+            stmt.setQueryTimeout(Database.QUERY_TIMEOUT_SECONDS);
             stmt.setString(1, contact.getName());
             stmt.setString(2, contact.getPhone());
             stmt.setString(3, contact.getEmail());
@@ -100,33 +204,217 @@ public class PersonRepositoryJDBC {
             stmt.executeUpdate();
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ERRORS.inc();
+            throw RepositoryException.of("update", e);
+        } finally {
+            UPDATE.recordSince(start);
         }
     }
 
 
+    @Override
     public void delete(Person contact) {
+        long start = System.nanoTime();
         String sql = "DELETE FROM contacts WHERE id=?";
         try (Connection conn = Database.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-
+            stmt.setQueryTimeout(Database.QUERY_TIMEOUT_SECONDS);
             stmt.setInt(1, contact.getId());
             stmt.executeUpdate();
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ERRORS.inc();
+            throw RepositoryException.of("delete", e);
+        } finally {
+            DELETE.recordSince(start);
+        }
+    }
+
+    // Max ids per DELETE ... IN (...) statement
+    private static final int DELETE_CHUNK = 500;
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        long start = System.nanoTime();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<Integer> idList = new ArrayList<>(ids);
+        int deleted = 0;
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+            // all full chunks share one statement; only a shorter last chunk needs its own
+            PreparedStatement fullChunk = null;
+            try {
+                for (int from = 0; from < idList.size(); from += DELETE_CHUNK) {
+                    List<Integer> chunk = idList.subList(from, Math.min(from + DELETE_CHUNK, idList.size()));
+                    boolean full = chunk.size() == DELETE_CHUNK;
+                    if (full && fullChunk == null) {
+                        fullChunk = prepareDelete(conn, DELETE_CHUNK);
+                    }
+                    PreparedStatement stmt = full ? fullChunk : prepareDelete(conn, chunk.size());
+                    try {
+                        for (int i = 0; i < chunk.size(); i++) {
+                            stmt.setInt(i + 1, chunk.get(i));
+                        }
+                        deleted += stmt.executeUpdate();
+                    } finally {
+                        if (!full) {
+                            stmt.close();
+                        }
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                if (fullChunk != null) {
+                    fullChunk.close();
+                }
+            }
+        } catch (SQLException e) {
+            ERRORS.inc();
+            throw RepositoryException.of("deleteAll", e);
+        } finally {
+            DELETE_ALL.recordSince(start);
+        }
+        return deleted;
+    }
+
+    private static PreparedStatement prepareDelete(Connection conn, int size) throws SQLException {
+        String sql = "DELETE FROM contacts WHERE id IN (" + String.join(",", Collections.nCopies(size, "?")) + ")";
+        PreparedStatement stmt = conn.prepareStatement(sql);
+        stmt.setQueryTimeout(Database.BULK_TIMEOUT_SECONDS);
+        return stmt;
+    }
+
+    @Override
+    public List<Integer> updateAll(Collection<Integer> ids, String country, String city) {
+        long start = System.nanoTime();
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Integer> idList = new ArrayList<>(ids);
+        List<Integer> updated = new ArrayList<>(idList.size());
+        // only the two columns: the rest of the row may have been edited on another node
+        String sql = "UPDATE contacts SET country=COALESCE(?, country), city=COALESCE(?, city) WHERE id=?";
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setQueryTimeout(Database.BULK_TIMEOUT_SECONDS);
+                for (Integer id : idList) {
+                    stmt.setString(1, country);
+                    stmt.setString(2, city);
+                    stmt.setInt(3, id);
+                    stmt.addBatch();
+                }
+                int[] counts = stmt.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    // SUCCESS_NO_INFO: the driver could not tell, count the row as updated
+                    if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                        updated.add(idList.get(i));
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            ERRORS.inc();
+            throw RepositoryException.of("updateAll", e);
+        } finally {
+            UPDATE_ALL.recordSince(start);
+        }
+        return updated;
+    }
+
+    // Whether the FULLTEXT index of migration V3 exists (checked once; null = not checked yet)
+    private volatile Boolean fullTextIndex;
+
+    @Override
+    public Optional<List<Integer>> searchIds(List<String> terms, int limit) {
+        if (!Database.isMySql() || !hasFullTextIndex()) {
+            return Optional.empty();
+        }
+        long start = System.nanoTime();
+        // boolean mode: every term required (+), as a word prefix (*)
+        StringBuilder against = new StringBuilder();
+        for (String term : terms) {
+            against.append('+').append(term.replaceAll("[+\\-<>()~*\"@]", " ").trim()).append("* ");
+        }
+        String sql = "SELECT id FROM contacts WHERE MATCH (name, phone, email, country, city, street)"
+                + " AGAINST (? IN BOOLEAN MODE) LIMIT ?";
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setQueryTimeout(Database.QUERY_TIMEOUT_SECONDS);
+            stmt.setString(1, against.toString().trim());
+            stmt.setInt(2, limit);
+            List<Integer> ids = new ArrayList<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+            return Optional.of(ids);
+        } catch (SQLException e) {
+            ERRORS.inc();
+            throw RepositoryException.of("searchIds", e);
+        } finally {
+            SEARCH.recordSince(start);
+        }
+    }
+
+    private boolean hasFullTextIndex() {
+        Boolean known = fullTextIndex;
+        if (known != null) {
+            return known;
+        }
+        String sql = "SELECT 1 FROM information_schema.statistics WHERE table_schema = DATABASE()"
+                + " AND table_name = 'contacts' AND index_type = 'FULLTEXT' LIMIT 1";
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            fullTextIndex = rs.next();
+            return fullTextIndex;
+        } catch (SQLException e) {
+            ERRORS.inc();
+            throw RepositoryException.of("hasFullTextIndex", e);
+        }
+    }
+
+    // Index-only aggregate (primary key), no row is transferred
+    @Override
+    public Optional<Fingerprint> fingerprint() {
+        String sql = "SELECT COUNT(*), COALESCE(MAX(id), 0) FROM contacts";
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setQueryTimeout(Database.BULK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return Optional.of(new Fingerprint(rs.getLong(1), rs.getInt(2)));
+            }
+        } catch (SQLException e) {
+            ERRORS.inc();
+            throw RepositoryException.of("fingerprint", e);
+        }
+    }
+
+    @Override
+    public void checkAvailable() {
+        try (Connection conn = Database.getConnection()) {
+            if (!conn.isValid(Database.QUERY_TIMEOUT_SECONDS)) {
+                throw new RepositoryException("Database connection is not valid", null, true);
+            }
+        } catch (SQLException e) {
+            throw RepositoryException.of("checkAvailable", e);
         }
     }
 
-    private Person mapRow(ResultSet rs) throws SQLException {
-        Person person = new Person();
-        person.setId(rs.getInt("id"));
-        person.setName(rs.getString("name"));
-        person.setPhone(rs.getString("phone"));
-        person.setEmail(rs.getString("email"));
-        person.setCountry(rs.getString("country"));
-        person.setCity(rs.getString("city"));
-        person.setStreet(rs.getString("street"));
-        return person;
+    // Row of a Projection.CONTACT query
+    private static Person mapRow(ResultSet rs) throws SQLException {
+        return new Person(rs.getInt(COL_ID), rs.getString(COL_NAME), rs.getString(COL_PHONE), rs.getString(COL_EMAIL),
+                rs.getString(COL_COUNTRY), rs.getString(COL_CITY), rs.getString(COL_STREET));
     }
 }
@@ -0,0 +1,46 @@
+package com.example.phonebook.repository;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientException;
+
+/**
+ * A repository operation failed. Thrown instead of returning empty results, so callers
+ * can tell "no contacts" from "database not reachable".
+ *
+ * Transient failures (connection lost, timeout, deadlock) may succeed when retried;
+ * the others (constraint violation, bad SQL) will not.
+ */
+public class RepositoryException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean transientFailure;
+
+    public RepositoryException(String message, Throwable cause, boolean transientFailure) {
+        super(message, cause);
+        this.transientFailure = transientFailure;
+    }
+
+    public static RepositoryException of(String operation, SQLException e) {
+        return new RepositoryException(operation + " failed: " + e.getMessage(), e, isTransient(e));
+    }
+
+    public boolean isTransient() {
+        return transientFailure;
+    }
+
+    static boolean isTransient(SQLException e) {
+        if (e instanceof SQLTransientException || e instanceof SQLRecoverableException || e instanceof SQLTimeoutException) {
+            return true;
+        }
+        String state = e.getSQLState();
+        // 08: connection exception, 40: transaction rollback (deadlock, serialization failure)
+        if (state != null && (state.startsWith("08") || state.startsWith("40"))) {
+            return true;
+        }
+        // MySQL/TiDB: lock wait timeout, deadlock
+        return e.getErrorCode() == 1205 || e.getErrorCode() == 1213;
+    }
+}
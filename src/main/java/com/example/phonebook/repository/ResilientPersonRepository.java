@@ -0,0 +1,221 @@
+package com.example.phonebook.repository;
+
+import com.example.phonebook.metrics.Counter;
+import com.example.phonebook.metrics.Metrics;
+import com.example.phonebook.model.Person;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Decorator that keeps a failing database from taking the application down with it:
+ *  - transient failures (see RepositoryException) of reads are retried with exponential
+ *    backoff and full jitter, so many sessions do not retry in lockstep. Writes are not
+ *    retried: DataService calls them holding its lock, so retries would stall every other
+ *    writer for attempts x (timeout + backoff), and an insert whose commit succeeded but
+ *    whose response was lost would be written twice. The user retries a failed save.
+ *  - a circuit breaker rejects calls at once after repeated failures, instead of every
+ *    request thread waiting for its own timeout. While it is open a background probe
+ *    checks the database and closes it again.
+ *
+ * Configured with system properties:
+ *   phonebook.db.retries              attempts per call including the first (3)
+ *   phonebook.db.retryBaseMillis      first backoff ceiling, doubled per attempt (100)
+ *   phonebook.db.circuit.failures     failed calls in a row that open the circuit (5)
+ *   phonebook.db.circuit.openMillis   how long calls are rejected before a trial (10000)
+ */
+public class ResilientPersonRepository implements PersonRepository {
+
+    private static final long MAX_BACKOFF_MILLIS = 2_000;
+
+    private static final Counter RETRIES = Metrics.counter("repository_retries");
+    private static final Counter REJECTED = Metrics.counter("repository_rejected");
+
+    private final PersonRepository delegate;
+    private final int maxAttempts;
+    private final long retryBaseMillis;
+    private final long openMillis;
+    private final CircuitBreaker circuit;
+    private final ScheduledExecutorService probe = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "repository-probe");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile Consumer<Boolean> availabilityListener = available -> { };
+
+    public ResilientPersonRepository(PersonRepository delegate) {
+        this(delegate,
+                Integer.getInteger("phonebook.db.retries", 3),
+                Long.getLong("phonebook.db.retryBaseMillis", 100),
+                Integer.getInteger("phonebook.db.circuit.failures", 5),
+                Long.getLong("phonebook.db.circuit.openMillis", 10_000));
+    }
+
+    public ResilientPersonRepository(PersonRepository delegate, int maxAttempts, long retryBaseMillis,
+                                     int failureThreshold, long openMillis) {
+        this.delegate = delegate;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBaseMillis = retryBaseMillis;
+        this.openMillis = openMillis;
+        this.circuit = new CircuitBreaker(failureThreshold, openMillis, this::stateChanged);
+        Metrics.gauge("repository_circuit_state", () -> circuit.state().ordinal()); // 0 closed, 1 open, 2 half open
+    }
+
+    @Override
+    public List<Person> findAll() {
+        return call("findAll", true, delegate::findAll);
+    }
+
+    @Override
+    public Optional<Person> findByPhone(String phone) {
+        return call("findByPhone", true, () -> delegate.findByPhone(phone));
+    }
+
+    @Override
+    public Optional<Person> findById(Integer id) {
+        return call("findById", true, () -> delegate.findById(id));
+    }
+
+    @Override
+    public Optional<Integer> findIdByPhone(String phone) {
+        return call("findIdByPhone", true, () -> delegate.findIdByPhone(phone));
+    }
+
+    @Override
+    public void add(Person contact) {
+        call("add", false, () -> {
+            delegate.add(contact);
+            return null;
+        });
+    }
+
+    @Override
+    public void update(Person contact) {
+        call("update", false, () -> {
+            delegate.update(contact);
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(Person contact) {
+        call("delete", false, () -> {
+            delegate.delete(contact);
+            return null;
+        });
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        return call("deleteAll", false, () -> delegate.deleteAll(ids));
+    }
+
+    @Override
+    public List<Integer> updateAll(Collection<Integer> ids, String country, String city) {
+        return call("updateAll", false, () -> delegate.updateAll(ids, country, city));
+    }
+
+    @Override
+    public Optional<List<Integer>> searchIds(List<String> terms, int limit) {
+        return call("searchIds", true, () -> delegate.searchIds(terms, limit));
+    }
+
+    @Override
+    public Optional<Fingerprint> fingerprint() {
+        return call("fingerprint", true, delegate::fingerprint);
+    }
+
+    @Override
+    public void checkAvailable() {
+        delegate.checkAvailable();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return circuit.state() != CircuitBreaker.State.OPEN;
+    }
+
+    @Override
+    public void setAvailabilityListener(Consumer<Boolean> listener) {
+        this.availabilityListener = listener;
+    }
+
+    private <T> T call(String operation, boolean retryable, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            if (!circuit.tryAcquire()) {
+                REJECTED.inc();
+                throw new RepositoryException("Database unavailable, " + operation + " rejected (retrying in the background)",
+                        null, true);
+            }
+            try {
+                T result = action.get();
+                circuit.onSuccess();
+                return result;
+            } catch (RepositoryException e) {
+                if (!e.isTransient()) {
+                    circuit.onSuccess(); // the database answered; the request itself was bad
+                    throw e;
+                }
+                circuit.onFailure();
+                if (!retryable || attempt >= maxAttempts || circuit.state() == CircuitBreaker.State.OPEN) {
+                    throw e;
+                }
+            } catch (RuntimeException e) {
+                // unexpected (driver bug, NPE): not retried, but the permit must be released,
+                // or a half-open circuit would wait for its trial call forever
+                circuit.onFailure();
+                throw e;
+            }
+            RETRIES.inc();
+            sleep(backoffMillis(attempt));
+        }
+    }
+
+    // Full jitter: uniform in [0, min(cap, base * 2^(attempt-1))]
+    private long backoffMillis(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, retryBaseMillis << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Interrupted while waiting to retry", e, false);
+        }
+    }
+
+    private void stateChanged(CircuitBreaker.State state) {
+        if (state == CircuitBreaker.State.OPEN) {
+            probe.schedule(this::probe, openMillis, TimeUnit.MILLISECONDS);
+            availabilityListener.accept(false);
+        } else if (state == CircuitBreaker.State.CLOSED) {
+            availabilityListener.accept(true);
+        }
+    }
+
+    // Trial call while the circuit is open, so it closes again without waiting for user traffic
+    private void probe() {
+        if (circuit.state() != CircuitBreaker.State.OPEN) {
+            return; // already recovered, or a user call is the trial right now (it reschedules on failure)
+        }
+        if (!circuit.tryAcquire()) {
+            probe.schedule(this::probe, 100, TimeUnit.MILLISECONDS); // woke up a little early
+            return;
+        }
+        try {
+            delegate.checkAvailable();
+            circuit.onSuccess();
+        } catch (RuntimeException e) {
+            circuit.onFailure(); // opens again and schedules the next probe
+        }
+    }
+}
@@ -0,0 +1,22 @@
+-- Every statement is guarded by information_schema, so the script works on schemas created
+-- with or without these keys and a re-run after a partial failure skips what is already done.
+
+-- `unique_phone` duplicates `phone`: every insert and phone change maintained the same index twice.
+-- Only dropped while another unique index on phone remains.
+-- phonebook:if SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = 'contacts' AND index_name = 'unique_phone'
+-- phonebook:if SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = 'contacts' AND index_name <> 'unique_phone' AND column_name = 'phone' AND seq_in_index = 1 AND non_unique = 0 AND index_name IN (SELECT index_name FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = 'contacts' GROUP BY index_name HAVING COUNT(*) = 1)
+ALTER TABLE `contacts` DROP INDEX `unique_phone`;
+
+-- Sort columns of the grid. InnoDB appends the primary key to every secondary index,
+-- so these also give the stable (value, id) order used for keyset paging.
+-- phonebook:if SELECT COUNT(*) = 0 FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = 'contacts' AND index_name = 'idx_contacts_name'
+CREATE INDEX `idx_contacts_name` ON `contacts` (`name`);
+-- phonebook:if SELECT COUNT(*) = 0 FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = 'contacts' AND index_name = 'idx_contacts_email'
+CREATE INDEX `idx_contacts_email` ON `contacts` (`email`);
+
+-- Filter by country (and city), sorted by name; the city index also serves
+-- "filter by city" and "sort by city".
+-- phonebook:if SELECT COUNT(*) = 0 FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = 'contacts' AND index_name = 'idx_contacts_country_city_name'
+CREATE INDEX `idx_contacts_country_city_name` ON `contacts` (`country`, `city`, `name`);
+-- phonebook:if SELECT COUNT(*) = 0 FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = 'contacts' AND index_name = 'idx_contacts_city_name'
+CREATE INDEX `idx_contacts_city_name` ON `contacts` (`city`, `name`);
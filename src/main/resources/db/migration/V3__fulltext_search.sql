@@ -0,0 +1,5 @@
+-- phonebook:optional
+-- Word search over all text columns for the global search (MATCH ... AGAINST).
+-- Optional: servers without FULLTEXT support (older TiDB) skip it, and the
+-- application then searches its in-memory cache instead.
+ALTER TABLE `contacts` ADD FULLTEXT INDEX `ft_contacts_search` (`name`, `phone`, `email`, `country`, `city`, `street`);
@@ -0,0 +1,93 @@
+package com.example.phonebook.repository;
+
+import com.example.phonebook.model.Person;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The store comparisons back the name/city/country indexes, so they must order exactly like
+ * String.CASE_INSENSITIVE_ORDER (nulls last), which the fallback scans and the in-memory
+ * provider use.
+ */
+class ContactColumnStoreTest {
+
+    private static final String[] NAMES = {
+            "Möller", "Müder", "möller", "MÜLLER", "Mueller", "Moller", "Mäder", "Mader",
+            "Åsa", "Ärla", "Øystein", "Zoë", "Zoe", "Élodie", "Eloise", "émile",
+            "Łukasz", "Lukas", "Ægir", "Aegir", "Straße", "Strasse", "İlkay", "ilkay",
+            "Çelik", "Celik", "Ñuñez", "Nunez", "Jörg", "Jürgen", "Jøran",
+            "王芳", "王伟", "李娜", "Kelvin", "\u212Aelvin" /* Kelvin sign */, "a😀b", "a😁b",
+            "", "A", "a", null
+    };
+
+    @Test
+    void compareNamesMatchesCaseInsensitiveOrder() {
+        ContactColumnStore store = new ContactColumnStore();
+        for (int i = 0; i < NAMES.length; i++) {
+            store.put(new Person(i, NAMES[i], "p" + i, null, null, null, null));
+        }
+        for (int a = 0; a < NAMES.length; a++) {
+            for (int b = 0; b < NAMES.length; b++) {
+                assertEquals(Integer.signum(expected(NAMES[a], NAMES[b])),
+                        Integer.signum(store.compareNames(a, b)),
+                        NAMES[a] + " vs " + NAMES[b]);
+            }
+        }
+    }
+
+    @Test
+    void cityAndCountryCompareLikeCaseInsensitiveOrder() {
+        ContactColumnStore store = new ContactColumnStore();
+        for (int i = 0; i < NAMES.length; i++) {
+            store.put(new Person(i, "n" + i, "p" + i, null, NAMES[i], NAMES[NAMES.length - 1 - i], null));
+        }
+        for (int a = 0; a < NAMES.length; a++) {
+            for (int b = 0; b < NAMES.length; b++) {
+                assertEquals(Integer.signum(expected(NAMES[a], NAMES[b])),
+                        Integer.signum(store.compareCountries(a, b)));
+                assertEquals(Integer.signum(expected(NAMES[NAMES.length - 1 - a], NAMES[NAMES.length - 1 - b])),
+                        Integer.signum(store.compareCities(a, b)));
+            }
+        }
+    }
+
+    @Test
+    void sortedByStoreEqualsSortedByString() {
+        ContactColumnStore store = new ContactColumnStore();
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < NAMES.length; i++) {
+            store.put(new Person(i, NAMES[i], "p" + i, null, null, null, null));
+            ids.add(i);
+        }
+        ids.sort(store::compareNames);
+        List<String> byStore = new ArrayList<>();
+        ids.forEach(id -> byStore.add(store.name(id)));
+
+        List<String> byString = new ArrayList<>(Arrays.asList(NAMES));
+        byString.sort(ContactColumnStoreTest::expected);
+        assertEquals(byString.size(), byStore.size());
+        for (int i = 0; i < byString.size(); i++) {
+            assertEquals(0, expected(byString.get(i), byStore.get(i)), "position " + i);
+        }
+    }
+
+    @Test
+    void unknownIdsSortLast() {
+        ContactColumnStore store = new ContactColumnStore();
+        store.put(new Person(1, "Möller", "p1", null, null, null, null));
+        assertEquals(-1, Integer.signum(store.compareNames(1, 99)));
+        assertEquals(1, Integer.signum(store.compareNames(99, 1)));
+    }
+
+    private static int expected(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : 1) : -1;
+        }
+        return String.CASE_INSENSITIVE_ORDER.compare(a, b);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.phonebook.repository;
+
+import com.example.phonebook.model.Person;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Every call the circuit breaker lets through must report back, whatever the delegate throws;
+ * a half-open trial that never reports keeps the circuit shut for good.
+ */
+class ResilientPersonRepositoryTest {
+
+    private enum Mode { UP, DOWN, BROKEN }
+
+    private static final class FlakyRepository extends PersonRepositoryInMemory {
+        volatile Mode mode = Mode.UP;
+        final AtomicInteger brokenCalls = new AtomicInteger();
+
+        @Override
+        public Optional<Person> findById(Integer id) {
+            if (mode == Mode.DOWN) {
+                throw new RepositoryException("connection lost", null, true);
+            }
+            if (mode == Mode.BROKEN) {
+                brokenCalls.incrementAndGet();
+                throw new NullPointerException("driver bug");
+            }
+            return super.findById(id);
+        }
+
+        @Override
+        public void checkAvailable() {
+            if (mode != Mode.UP) {
+                throw new RepositoryException("connection lost", null, true);
+            }
+        }
+    }
+
+    @Test
+    void transientFailuresOpenTheCircuit() {
+        FlakyRepository delegate = new FlakyRepository();
+        ResilientPersonRepository repository = new ResilientPersonRepository(delegate, 1, 0, 2, 60_000);
+
+        delegate.mode = Mode.DOWN;
+        assertThrows(RepositoryException.class, () -> repository.findById(1));
+        assertTrue(repository.isAvailable());
+        assertThrows(RepositoryException.class, () -> repository.findById(1));
+        assertFalse(repository.isAvailable());
+
+        delegate.mode = Mode.UP;
+        RepositoryException rejected = assertThrows(RepositoryException.class, () -> repository.findById(1));
+        assertTrue(rejected.isTransient());
+    }
+
+    @Test
+    void unexpectedExceptionInHalfOpenTrialReleasesTheCircuit() throws InterruptedException {
+        FlakyRepository delegate = new FlakyRepository();
+        ResilientPersonRepository repository = new ResilientPersonRepository(delegate, 1, 0, 1, 20);
+
+        delegate.mode = Mode.DOWN;
+        assertThrows(RepositoryException.class, () -> repository.findById(1));
+        assertFalse(repository.isAvailable());
+
+        // The background probe keeps failing, so the circuit keeps reopening; wait until
+        // one of our calls wins the half-open trial and hits the unexpected exception.
+        delegate.mode = Mode.BROKEN;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (delegate.brokenCalls.get() == 0 && System.nanoTime() < deadline) {
+            try {
+                repository.findById(1);
+            } catch (NullPointerException | RepositoryException e) {
+                // rejected while open, or the trial itself
+            }
+            Thread.sleep(1);
+        }
+        assertEquals(1, delegate.brokenCalls.get(), "half-open trial calls");
+
+        // Database healthy again: the probe or a later trial must close the circuit.
+        delegate.mode = Mode.UP;
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        boolean recovered = false;
+        while (!recovered && System.nanoTime() < deadline) {
+            try {
+                repository.findById(1);
+                recovered = true;
+            } catch (RepositoryException e) {
+                Thread.sleep(5);
+            }
+        }
+        assertTrue(recovered, "circuit closed again after the database came back");
+        assertTrue(repository.isAvailable());
+    }
+}